@@ -0,0 +1,144 @@
+package com.example.textwatchface;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * Draws the ambient frame: the phrase in monochrome and the complications, without the status
+ * line or the date overlay. The words of all phrases are rasterized once into a
+ * {@link WordAtlas} per configuration, so an ambient frame is a clear, a few tinted blits and the
+ * complications, with no text rendering at all. Changing an input of the atlas only marks it
+ * stale; the owner rebuilds it with {@link #buildAtlas} outside of a frame. A frame drawn before
+ * that falls back to plain text instead of rasterizing the whole table.
+ *
+ * <p>With burn-in protection the words are rasterized as thin outlines, and the whole frame is
+ * drawn through a translation that moves one step along {@link #SHIFT_X}/{@link #SHIFT_Y} every
+ * minute, so no pixel stays lit at the same place and nothing is laid out again.
+ */
+final class AmbientRenderer {
+
+    interface ComplicationPainter {
+        void drawComplications(Canvas canvas, long currentTimeMillis);
+    }
+
+    /* Distance between the burn-in shift positions as a fraction of the surface width. */
+    static final float SHIFT_STEP_SCALE = 0.01f;
+
+    /*
+     * Burn-in shift per minute in steps, a walk around the origin where consecutive offsets are
+     * neighbours, so the content never jumps by more than one step.
+     */
+    private static final int[] SHIFT_X = {0, 1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] SHIFT_Y = {0, 0, 1, 1, 1, 0, -1, -1, -1};
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    /* Stroke width of the outlined words with burn-in protection. */
+    private static final float OUTLINE_WIDTH = 2f;
+
+    private final ComplicationPainter complicationPainter;
+    private final Paint atlasPaint = new Paint();
+    private final Paint textPaint = new Paint();
+    private final Paint hourPaint = new Paint();
+    private final WordAtlas wordAtlas = new WordAtlas();
+
+    private PhraseTable phraseTable;
+    private TextLayoutCache layoutCache;
+    private boolean burnInProtection;
+    private int shiftStep;
+    private boolean atlasStale = true;
+
+    AmbientRenderer(ComplicationPainter complicationPainter) {
+        this.complicationPainter = complicationPainter;
+        atlasPaint.setColor(Color.WHITE);
+    }
+
+    /**
+     * Sets the phrases and their layouts the atlas is built from.
+     */
+    void setPhrases(PhraseTable phraseTable, TextLayoutCache layoutCache) {
+        this.phraseTable = phraseTable;
+        this.layoutCache = layoutCache;
+        invalidateAtlas();
+    }
+
+    /**
+     * Rebuilds the ambient paints. Low-bit ambient screens get white text rasterized without
+     * anti-aliasing, other screens a dimmed phrase with a white hour. Screens that need burn-in
+     * protection get outlined words.
+     */
+    void configure(Typeface typeface, boolean lowBitAmbient, boolean burnInProtection) {
+        this.burnInProtection = burnInProtection;
+        atlasPaint.setTypeface(typeface);
+        atlasPaint.setAntiAlias(!lowBitAmbient);
+        atlasPaint.setStyle(burnInProtection ? Paint.Style.STROKE : Paint.Style.FILL);
+        atlasPaint.setStrokeWidth(burnInProtection ? OUTLINE_WIDTH : 0);
+        textPaint.setColor(lowBitAmbient ? Color.WHITE : Color.GRAY);
+        hourPaint.setColor(Color.WHITE);
+        for (Paint paint : new Paint[] {textPaint, hourPaint}) {
+            paint.setTypeface(typeface);
+            paint.setAntiAlias(!lowBitAmbient);
+            paint.setStyle(atlasPaint.getStyle());
+            paint.setStrokeWidth(atlasPaint.getStrokeWidth());
+        }
+        invalidateAtlas();
+    }
+
+    /**
+     * Drops the atlas, must be called after the layouts of the cache were invalidated.
+     */
+    void invalidateAtlas() {
+        wordAtlas.release();
+        atlasStale = true;
+    }
+
+    /**
+     * Rasterizes the words at the sizes of the current layouts if any input changed since the
+     * last build. Measures every phrase that was not laid out yet.
+     */
+    void buildAtlas() {
+        if (!atlasStale || phraseTable == null) {
+            return;
+        }
+        atlasStale = false;
+        wordAtlas.build(phraseTable, layoutCache, atlasPaint);
+    }
+
+    /**
+     * Sets the distance in pixels between the burn-in shift positions, sized for the surface.
+     */
+    void setShiftStep(int shiftStep) {
+        this.shiftStep = shiftStep;
+    }
+
+    void draw(Canvas canvas, PhraseLayout layout, long currentTimeMillis) {
+        canvas.drawColor(Color.BLACK);
+        int saveCount = canvas.save();
+        if (burnInProtection) {
+            int shift = (int) Math.floorMod(currentTimeMillis / MILLIS_PER_MINUTE, (long) SHIFT_X.length);
+            canvas.translate(SHIFT_X[shift] * shiftStep, SHIFT_Y[shift] * shiftStep);
+        }
+        if (wordAtlas.isBuiltFor(layout)) {
+            wordAtlas.draw(canvas, layout, textPaint, hourPaint);
+        } else {
+            drawText(canvas, layout);
+        }
+        complicationPainter.drawComplications(canvas, currentTimeMillis);
+        canvas.restoreToCount(saveCount);
+    }
+
+    void release() {
+        wordAtlas.release();
+        atlasStale = true;
+    }
+
+    private void drawText(Canvas canvas, PhraseLayout layout) {
+        Phrase phrase = layout.phrase;
+        textPaint.setTextSize(layout.textSize);
+        hourPaint.setTextSize(layout.textSize);
+        for (int i = 0; i < phrase.runs.length; i++) {
+            Paint paint = i == phrase.hourRun ? hourPaint : textPaint;
+            canvas.drawText(phrase.runs[i], layout.runX[i], layout.runY[i], paint);
+        }
+    }
+}
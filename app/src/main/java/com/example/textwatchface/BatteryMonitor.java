@@ -0,0 +1,110 @@
+package com.example.textwatchface;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Tracks the battery level shown on the watch face. {@link Intent#ACTION_BATTERY_CHANGED} fires on
+ * every voltage, temperature or plug change, so broadcasts that leave the displayed percentage
+ * untouched are dropped with a field compare, and real changes are published at most once per
+ * coalescing window. The charging state is not shown and not tracked.
+ */
+final class BatteryMonitor {
+
+    static final long DEFAULT_COALESCE_WINDOW_MS = 2000;
+
+    interface Listener {
+        /**
+         * Called on the handler's thread after {@link #getPercent()} changed.
+         */
+        void onBatteryChanged();
+    }
+
+    private final Context context;
+    private final Handler handler;
+    private final int publishMessage;
+    private final long coalesceWindowMs;
+    private final Listener listener;
+
+    private final BroadcastReceiver receiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            update(intent);
+        }
+    };
+    private boolean registered;
+
+    private int percent = -1;
+    private int pendingPercent = -1;
+    private long lastPublishTime;
+
+    /**
+     * @param publishMessage message id the handler routes to {@link #publish()}
+     */
+    BatteryMonitor(Context context, Handler handler, int publishMessage, long coalesceWindowMs,
+                   Listener listener) {
+        this.context = context;
+        this.handler = handler;
+        this.publishMessage = publishMessage;
+        this.coalesceWindowMs = coalesceWindowMs;
+        this.listener = listener;
+    }
+
+    int getPercent() {
+        return percent;
+    }
+
+    void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+        Intent sticky = context.registerReceiver(receiver, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (sticky != null) {
+            /* The caller redraws after registering, so the current state needs no publish. */
+            readIntent(sticky);
+            percent = pendingPercent;
+        }
+    }
+
+    void unregister() {
+        if (!registered) {
+            return;
+        }
+        registered = false;
+        context.unregisterReceiver(receiver);
+        handler.removeMessages(publishMessage);
+    }
+
+    /**
+     * Publishes the pending state, called when the coalescing message is handled.
+     */
+    void publish() {
+        if (pendingPercent == percent) {
+            return;
+        }
+        percent = pendingPercent;
+        lastPublishTime = SystemClock.uptimeMillis();
+        listener.onBatteryChanged();
+    }
+
+    private void update(Intent intent) {
+        readIntent(intent);
+        if (pendingPercent == percent || handler.hasMessages(publishMessage)) {
+            return;
+        }
+        long delay = Math.max(0, lastPublishTime + coalesceWindowMs - SystemClock.uptimeMillis());
+        handler.sendEmptyMessageDelayed(publishMessage, delay);
+    }
+
+    private void readIntent(Intent intent) {
+        int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        pendingPercent = level >= 0 && scale > 0 ? level * 100 / scale : -1;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.textwatchface;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Formats the status line ("HH:mm         87%") and the date overlay into reusable char buffers
+ * that can be drawn with {@link android.graphics.Canvas#drawText(char[], int, int, float, float,
+ * android.graphics.Paint)}. The buffers are only rewritten when the displayed value changes, so
+ * a frame with an unchanged minute, battery level and day formats nothing.
+ */
+final class ClockFormatter {
+
+    /* Gap between the time and the battery level in the status line. */
+    private static final int STATUS_LINE_GAP = 9;
+
+    final char[] statusLine = new char[5 + STATUS_LINE_GAP + 4];
+    int statusLineLength;
+
+    final char[] weekday;
+    int weekdayLength;
+
+    final char[] date = new char[10];
+    int dateLength;
+
+    private final String[] weekdayNames;
+
+    private int statusLineKey = Integer.MIN_VALUE;
+    private int dateKey = Integer.MIN_VALUE;
+
+    ClockFormatter(Locale locale) {
+        weekdayNames = DateFormatSymbols.getInstance(locale).getWeekdays();
+        int longest = 0;
+        for (String name : weekdayNames) {
+            longest = Math.max(longest, name.length());
+        }
+        weekday = new char[longest];
+    }
+
+    /**
+     * Rewrites {@link #statusLine} if the minute or the battery level changed.
+     *
+     * @return whether the buffer changed
+     */
+    boolean updateStatusLine(int hourOfDay, int minute, int battery) {
+        int key = (battery * 24 + hourOfDay) * 60 + minute;
+        if (key == statusLineKey) {
+            return false;
+        }
+        statusLineKey = key;
+
+        int length = 0;
+        length = writeTwoDigits(statusLine, length, hourOfDay);
+        statusLine[length++] = ':';
+        length = writeTwoDigits(statusLine, length, minute);
+        for (int i = 0; i < STATUS_LINE_GAP; i++) {
+            statusLine[length++] = ' ';
+        }
+        length = writeInt(statusLine, length, battery);
+        statusLine[length++] = '%';
+        statusLineLength = length;
+        return true;
+    }
+
+    /**
+     * Rewrites {@link #weekday} and {@link #date} if the local day changed.
+     *
+     * @param month zero based, as in {@link Calendar#MONTH}
+     * @param dayOfWeek as in {@link Calendar#DAY_OF_WEEK}
+     * @return whether the buffers changed
+     */
+    boolean updateDate(int year, int month, int dayOfMonth, int dayOfWeek) {
+        int key = (year * 12 + month) * 31 + dayOfMonth;
+        if (key == dateKey) {
+            return false;
+        }
+        dateKey = key;
+
+        String name = weekdayNames[dayOfWeek];
+        name.getChars(0, name.length(), weekday, 0);
+        weekdayLength = name.length();
+
+        int length = 0;
+        length = writeTwoDigits(date, length, dayOfMonth);
+        date[length++] = '.';
+        length = writeTwoDigits(date, length, month + 1);
+        date[length++] = '.';
+        length = writeTwoDigits(date, length, year / 100);
+        length = writeTwoDigits(date, length, year % 100);
+        dateLength = length;
+        return true;
+    }
+
+    private static int writeTwoDigits(char[] buffer, int offset, int value) {
+        buffer[offset] = (char) ('0' + value / 10);
+        buffer[offset + 1] = (char) ('0' + value % 10);
+        return offset + 2;
+    }
+
+    private static int writeInt(char[] buffer, int offset, int value) {
+        if (value < 0) {
+            buffer[offset++] = '-';
+            value = -value;
+        }
+        int digits = value >= 100 ? 3 : value >= 10 ? 2 : 1;
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[offset + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
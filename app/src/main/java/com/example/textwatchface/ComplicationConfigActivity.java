@@ -3,18 +3,23 @@ package com.example.textwatchface;
 import android.app.Activity;
 import android.content.ComponentName;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
 import android.os.Bundle;
 import android.support.wearable.complications.ComplicationHelperActivity;
 import android.support.wearable.complications.ComplicationProviderInfo;
 import android.support.wearable.complications.ProviderChooserIntent;
 import android.support.wearable.complications.ProviderInfoRetriever;
 import android.view.View;
+import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 
 import androidx.annotation.Nullable;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class ComplicationConfigActivity extends Activity implements View.OnClickListener {
@@ -22,12 +27,56 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
     private static final String TAG = "ConfigActivity";
     static final int COMPLICATION_CONFIG_REQUEST_CODE = 1001;
 
-    private int complicationId;
+    /* Threads shared by the provider info retrieval and the icon cache. */
+    private static final int BACKGROUND_THREADS = 2;
+
+    /* Views of the slots, in the order of MyWatchFace.getComplicationIds(). */
+    private static final int[] COMPLICATION_BUTTON_IDS = {
+            R.id.bottom_complication,
+            R.id.left_complication,
+            R.id.right_complication,
+            R.id.top_left_complication,
+            R.id.top_right_complication,
+            R.id.bottom_left_complication,
+            R.id.bottom_right_complication
+    };
+    private static final int[] COMPLICATION_BACKGROUND_IDS = {
+            R.id.bottom_complication_background,
+            R.id.left_complication_background,
+            R.id.right_complication_background,
+            R.id.top_left_complication_background,
+            R.id.top_right_complication_background,
+            R.id.bottom_left_complication_background,
+            R.id.bottom_right_complication_background
+    };
+
+    /* Colors the color buttons cycle through. */
+    private static final int[] COLOR_PALETTE = {
+            R.color.white, R.color.silver, R.color.gray, R.color.red, R.color.maroon,
+            R.color.yellow, R.color.olive, R.color.lime, R.color.green, R.color.aqua,
+            R.color.teal, R.color.blue, R.color.navy, R.color.fuchsia, R.color.purple
+    };
+    private static final int TEXT_SIZE_STEP = 5;
+
+    private int[] complicationIds;
     private int selectedComplicationId;
     private ComponentName watchFaceComponentName;
     private ProviderInfoRetriever providerInfoRetriever;
-    private ImageView complicationBackground;
-    private ImageButton complication;
+    private ImageView[] complicationBackgrounds;
+    private ImageButton[] complications;
+    /* Whether the live provider info of a slot arrived, which makes its cached icon stale. */
+    private boolean[] providerInfoReceived;
+    private ExecutorService backgroundExecutor;
+    private ProviderIconCache providerIconCache;
+
+    private SharedPreferences stylePreferences;
+    private StyleSettings style;
+    private Button textColorButton;
+    private Button hourColorButton;
+    private Button miscColorButton;
+    private Button fontButton;
+    private Button miscFontButton;
+    private Button textSizeButton;
     private Drawable defaultlAddComplicationDrawable;
 
 
@@ -39,20 +88,45 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
         defaultlAddComplicationDrawable = getDrawable(R.drawable.add_complication);
 
         selectedComplicationId = -1;
-        complicationId = MyWatchFace.getComplicationId();
+        complicationIds = MyWatchFace.getComplicationIds();
         watchFaceComponentName =
                 new ComponentName(getApplicationContext(), MyWatchFace.class);
 
-        complicationBackground = (ImageView) findViewById(R.id.complication_background);
-        complication = (ImageButton) findViewById(R.id.left_complication);
-        complication.setOnClickListener(this);
+        complicationBackgrounds = new ImageView[complicationIds.length];
+        complications = new ImageButton[complicationIds.length];
+        for (int i = 0; i < complicationIds.length; i++) {
+            complicationBackgrounds[i] = (ImageView) findViewById(COMPLICATION_BACKGROUND_IDS[i]);
+            complications[i] = (ImageButton) findViewById(COMPLICATION_BUTTON_IDS[i]);
+            complications[i].setOnClickListener(this);
 
-        // Sets default as "Add Complication" icon.
-        complication.setImageDrawable(defaultlAddComplicationDrawable);
-        complicationBackground.setVisibility(View.INVISIBLE);
+            // Sets default as "Add Complication" icon.
+            complications[i].setImageDrawable(defaultlAddComplicationDrawable);
+            complicationBackgrounds[i].setVisibility(View.INVISIBLE);
+        }
+
+        stylePreferences = getSharedPreferences(StyleSettings.PREFERENCES_NAME, MODE_PRIVATE);
+        style = StyleSettings.read(stylePreferences);
+        textColorButton = (Button) findViewById(R.id.style_text_color);
+        hourColorButton = (Button) findViewById(R.id.style_hour_color);
+        miscColorButton = (Button) findViewById(R.id.style_misc_color);
+        fontButton = (Button) findViewById(R.id.style_font);
+        miscFontButton = (Button) findViewById(R.id.style_misc_font);
+        textSizeButton = (Button) findViewById(R.id.style_text_size);
+        textColorButton.setOnClickListener(this);
+        hourColorButton.setOnClickListener(this);
+        miscColorButton.setOnClickListener(this);
+        fontButton.setOnClickListener(this);
+        miscFontButton.setOnClickListener(this);
+        textSizeButton.setOnClickListener(this);
+        updateStyleViews();
+
+        providerInfoReceived = new boolean[complicationIds.length];
+        backgroundExecutor = Executors.newFixedThreadPool(BACKGROUND_THREADS);
+        providerIconCache = new ProviderIconCache(this);
+        showCachedIcons();
 
         providerInfoRetriever =
-                new ProviderInfoRetriever(getApplicationContext(), Executors.newCachedThreadPool());
+                new ProviderInfoRetriever(getApplicationContext(), backgroundExecutor);
         providerInfoRetriever.init();
 
         retrieveInitialComplicationsData();
@@ -63,11 +137,55 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
         super.onDestroy();
 
         providerInfoRetriever.release();
+        backgroundExecutor.shutdownNow();
     }
 
-    public void retrieveInitialComplicationsData() {
+    /**
+     * Shows the icons cached the last time the screen was open until the live provider info
+     * arrives.
+     */
+    private void showCachedIcons() {
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap[] icons = new Bitmap[complicationIds.length];
+                for (int i = 0; i < complicationIds.length; i++) {
+                    icons[i] = providerIconCache.read(complicationIds[i]);
+                }
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isDestroyed()) {
+                            return;
+                        }
+                        for (int i = 0; i < complicationIds.length; i++) {
+                            if (icons[i] != null && !providerInfoReceived[i]) {
+                                complications[i].setImageBitmap(icons[i]);
+                                complicationBackgrounds[i].setVisibility(View.VISIBLE);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
 
-        final int[] complicationIds = MyWatchFace.getComplicationIds();
+    private void cacheIcon(final int complicationId, ComplicationProviderInfo providerInfo) {
+        if (backgroundExecutor.isShutdown()) {
+            return;
+        }
+        final String provider = providerInfo != null
+                ? providerInfo.appName + '/' + providerInfo.providerName : null;
+        final Icon icon = providerInfo != null ? providerInfo.providerIcon : null;
+        backgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                providerIconCache.write(complicationId, provider, icon);
+            }
+        });
+    }
+
+    public void retrieveInitialComplicationsData() {
 
         providerInfoRetriever.retrieveProviderInfo(
                 new ProviderInfoRetriever.OnProviderInfoReceivedCallback() {
@@ -84,17 +202,64 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
 
     @Override
     public void onClick(View v) {
-        if(v.equals(complication))
-            launchComplicationHelperActivity();
+        for (int i = 0; i < complications.length; i++) {
+            if (v.equals(complications[i])) {
+                launchComplicationHelperActivity(complicationIds[i]);
+            }
+        }
+        if (v.equals(textColorButton)) {
+            updateStyle(style.withTextColor(nextColor(style.textColor)));
+        } else if (v.equals(hourColorButton)) {
+            updateStyle(style.withHourColor(nextColor(style.hourColor)));
+        } else if (v.equals(miscColorButton)) {
+            updateStyle(style.withMiscColor(nextColor(style.miscColor)));
+        } else if (v.equals(fontButton)) {
+            updateStyle(style.withPhraseFont((style.phraseFont + 1) % StyleSettings.FONT_COUNT));
+        } else if (v.equals(miscFontButton)) {
+            updateStyle(style.withMiscFont((style.miscFont + 1) % StyleSettings.FONT_COUNT));
+        } else if (v.equals(textSizeButton)) {
+            int size = style.textSize + TEXT_SIZE_STEP;
+            updateStyle(style.withTextSize(size > StyleSettings.MAX_TEXT_SIZE ? StyleSettings.MIN_TEXT_SIZE : size));
+        }
+    }
+
+    /**
+     * Stores the new settings, running engines pick them up through their preference listener.
+     */
+    private void updateStyle(StyleSettings newStyle) {
+        style = newStyle;
+        style.write(stylePreferences);
+        updateStyleViews();
+    }
+
+    private void updateStyleViews() {
+        textColorButton.setTextColor(style.textColor);
+        hourColorButton.setTextColor(style.hourColor);
+        miscColorButton.setTextColor(style.miscColor);
+        fontButton.setText(getString(R.string.style_font, style.phraseFont + 1));
+        miscFontButton.setText(getString(R.string.style_misc_font, style.miscFont + 1));
+        textSizeButton.setText(getString(R.string.style_text_size, style.textSize));
     }
 
-    private void launchComplicationHelperActivity() {
-        selectedComplicationId = MyWatchFace.getComplicationId();
+    /**
+     * Returns the palette color after the given one, the first one if it isn't in the palette.
+     */
+    private int nextColor(int color) {
+        for (int i = 0; i < COLOR_PALETTE.length; i++) {
+            if (getColor(COLOR_PALETTE[i]) == color) {
+                return getColor(COLOR_PALETTE[(i + 1) % COLOR_PALETTE.length]);
+            }
+        }
+        return getColor(COLOR_PALETTE[0]);
+    }
+
+    private void launchComplicationHelperActivity(int complicationId) {
+        selectedComplicationId = complicationId;
 
         if (selectedComplicationId >= 0) {
 
             int[] supportedTypes =
-                    MyWatchFace.getSupportedComplicationTypes();
+                    MyWatchFace.getSupportedComplicationTypes(selectedComplicationId);
 
             startActivityForResult(
                     ComplicationHelperActivity.createProviderChooserHelperIntent(
@@ -110,16 +275,20 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
     public void updateComplicationViews(
             int watchFaceComplicationId, ComplicationProviderInfo complicationProviderInfo) {
 
-        if (watchFaceComplicationId == complicationId) {
+        for (int i = 0; i < complicationIds.length; i++) {
+            if (watchFaceComplicationId != complicationIds[i]) {
+                continue;
+            }
+            providerInfoReceived[i] = true;
             if (complicationProviderInfo != null) {
-                complication.setImageIcon(complicationProviderInfo.providerIcon);
-                complicationBackground.setVisibility(View.VISIBLE);
+                complications[i].setImageIcon(complicationProviderInfo.providerIcon);
+                complicationBackgrounds[i].setVisibility(View.VISIBLE);
 
             } else {
-                complication.setImageDrawable(defaultlAddComplicationDrawable);
-                complicationBackground.setVisibility(View.INVISIBLE);
+                complications[i].setImageDrawable(defaultlAddComplicationDrawable);
+                complicationBackgrounds[i].setVisibility(View.INVISIBLE);
             }
-
+            cacheIcon(watchFaceComplicationId, complicationProviderInfo);
         }
     }
 
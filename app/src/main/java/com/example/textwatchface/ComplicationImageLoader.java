@@ -0,0 +1,206 @@
+package com.example.textwatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Handler;
+import android.support.wearable.complications.ComplicationData;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.SparseArray;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes the icons and small images of complication data on a background thread and scales
+ * them to the slot size, so {@link android.support.wearable.complications.rendering.ComplicationDrawable}
+ * gets ready bitmaps and never loads a provider's image while a frame is drawn. The burn-in
+ * protection variants the ambient frame shows are prepared together with the regular images.
+ * Results are kept in an LRU cache bounded in bytes, keyed by the resource or URI of the image
+ * and the size it was scaled to, so a provider that keeps sending the same image is decoded once.
+ *
+ * <p>All methods must be called on the handler's thread.
+ */
+final class ComplicationImageLoader {
+
+    interface Callback {
+        /**
+         * Called on the handler's thread with the data of a {@link #prepare} call that had to
+         * wait for decoding, unless a newer request for the slot replaced it.
+         */
+        void onImagesPrepared(int complicationId, ComplicationData prepared);
+    }
+
+    static final int DEFAULT_CACHE_SIZE_BYTES = 1024 * 1024;
+
+    /* Images of a data object: icon, burn-in icon, small image, burn-in small image. */
+    private static final int IMAGE_COUNT = 4;
+
+    private final Context context;
+    private final Handler handler;
+    private final Callback callback;
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor();
+    private final LruCache<String, Bitmap> cache;
+    /* Latest data every slot asked for, to drop results that arrive after a newer request. */
+    private final SparseArray<ComplicationData> requests = new SparseArray<>();
+
+    ComplicationImageLoader(Context context, Handler handler, int cacheSizeBytes, Callback callback) {
+        this.context = context.getApplicationContext();
+        this.handler = handler;
+        this.callback = callback;
+        cache = new LruCache<String, Bitmap>(cacheSizeBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the data with its images replaced by scaled bitmaps if all of them are cached, the
+     * data itself if it has no images to prepare, or null if they are being decoded; the
+     * callback then delivers the prepared data.
+     *
+     * @param size edge length of the slot the images are scaled to fit, 0 if not known yet
+     */
+    ComplicationData prepare(final int complicationId, final ComplicationData data, final int size) {
+        requests.put(complicationId, data);
+        if (data == null || size <= 0) {
+            return data;
+        }
+        final Icon[] images = getImages(data);
+        Bitmap[] bitmaps = new Bitmap[IMAGE_COUNT];
+        boolean hasImages = false;
+        boolean cached = true;
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            if (images[i] != null) {
+                hasImages = true;
+                String key = getKey(images[i], size);
+                bitmaps[i] = key == null ? null : cache.get(key);
+                cached &= bitmaps[i] != null;
+            }
+        }
+        if (!hasImages) {
+            return data;
+        }
+        if (cached) {
+            return replaceImages(data, bitmaps);
+        }
+        final boolean cover = data.getImageStyle() == ComplicationData.IMAGE_STYLE_PHOTO;
+        decoder.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap[] decoded = new Bitmap[IMAGE_COUNT];
+                for (int i = 0; i < IMAGE_COUNT; i++) {
+                    if (images[i] == null) {
+                        continue;
+                    }
+                    String key = getKey(images[i], size);
+                    decoded[i] = key == null ? null : cache.get(key);
+                    if (decoded[i] == null) {
+                        decoded[i] = decode(images[i], size, cover && i >= 2);
+                        if (decoded[i] != null && key != null) {
+                            cache.put(key, decoded[i]);
+                        }
+                    }
+                }
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (requests.get(complicationId) == data) {
+                            callback.onImagesPrepared(complicationId, replaceImages(data, decoded));
+                        }
+                    }
+                });
+            }
+        });
+        return null;
+    }
+
+    /**
+     * Forgets the pending requests, their results are dropped.
+     */
+    void cancel() {
+        requests.clear();
+    }
+
+    void release() {
+        cancel();
+        decoder.shutdownNow();
+        cache.evictAll();
+    }
+
+    private static Icon[] getImages(ComplicationData data) {
+        return new Icon[] {data.getIcon(), data.getBurnInProtectionIcon(),
+                data.getSmallImage(), data.getBurnInProtectionSmallImage()};
+    }
+
+    /* Images that failed to decode are left for the drawable to load. */
+    private static ComplicationData replaceImages(ComplicationData data, Bitmap[] bitmaps) {
+        ComplicationData.Builder builder = new ComplicationData.Builder(data);
+        if (bitmaps[0] != null) {
+            builder.setIcon(Icon.createWithBitmap(bitmaps[0]));
+        }
+        if (bitmaps[1] != null) {
+            builder.setBurnInProtectionIcon(Icon.createWithBitmap(bitmaps[1]));
+        }
+        if (bitmaps[2] != null) {
+            builder.setSmallImage(Icon.createWithBitmap(bitmaps[2]));
+        }
+        if (bitmaps[3] != null) {
+            builder.setBurnInProtectionSmallImage(Icon.createWithBitmap(bitmaps[3]));
+        }
+        return builder.build();
+    }
+
+    /*
+     * Resources and URIs are identified by what they point to. Bitmap and data icons arrive as
+     * new objects with every update and can't be identified without decoding them, they are
+     * decoded every time and not cached.
+     */
+    private static String getKey(Icon icon, int size) {
+        switch (icon.getType()) {
+            case Icon.TYPE_RESOURCE:
+                return "res:" + icon.getResPackage() + ':' + icon.getResId() + '@' + size;
+            case Icon.TYPE_URI:
+                return "uri:" + icon.getUri() + '@' + size;
+            default:
+                return null;
+        }
+    }
+
+    /*
+     * Runs on the decoder thread. Icons are scaled to fit the slot, photos to cover it since the
+     * drawable crops them; neither is scaled up.
+     */
+    private Bitmap decode(Icon icon, int size, boolean cover) {
+        Drawable drawable;
+        try {
+            drawable = icon.loadDrawable(context);
+        } catch (RuntimeException e) {
+            Log.w("WATCHFACE", "Could not load complication image: " + e);
+            return null;
+        }
+        if (drawable == null) {
+            return null;
+        }
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) {
+            width = size;
+            height = size;
+        }
+        float scale = cover
+                ? (float) size / Math.min(width, height)
+                : (float) size / Math.max(width, height);
+        scale = Math.min(scale, 1f);
+        Bitmap bitmap = Bitmap.createBitmap(Math.max(1, Math.round(width * scale)),
+                Math.max(1, Math.round(height * scale)), Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.textwatchface;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.rendering.ComplicationDrawable;
+
+/**
+ * State of all complication slots: their drawables, latest data and bounds, which of them need
+ * to be rendered again, and a grid index over the surface for tap hit-testing. A slot is only
+ * re-rendered when its data changes, it crosses an active-time boundary or, for slots showing
+ * text that may depend on the time, once a minute.
+ */
+final class ComplicationSlots {
+
+    static final int MAX_SLOTS = 8;
+
+    /* The surface is split into GRID x GRID cells, each holding a bit mask of the slots in it. */
+    private static final int GRID = 8;
+
+    private final int[] ids;
+    private final ComplicationDrawable[] drawables;
+    private final ComplicationData[] data;
+    private final Rect[] bounds;
+    private final boolean[] dirty;
+    private final boolean[] active;
+    private final boolean[] timeDependent;
+
+    private final int[] cells = new int[GRID * GRID];
+    private int width;
+    private int height;
+
+    ComplicationSlots(int[] ids, ComplicationDrawable[] drawables) {
+        if (ids.length > MAX_SLOTS || ids.length != drawables.length) {
+            throw new IllegalArgumentException("Unsupported slot count: " + ids.length);
+        }
+        this.ids = ids;
+        this.drawables = drawables;
+        data = new ComplicationData[ids.length];
+        bounds = new Rect[ids.length];
+        dirty = new boolean[ids.length];
+        active = new boolean[ids.length];
+        timeDependent = new boolean[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            bounds[i] = new Rect();
+        }
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    ComplicationData getData(int complicationId) {
+        return data[indexOf(complicationId)];
+    }
+
+    /**
+     * Stores new data for a slot and marks it for rendering.
+     */
+    void setData(int complicationId, ComplicationData complicationData, long currentTimeMillis) {
+        int index = indexOf(complicationId);
+        data[index] = complicationData;
+        drawables[index].setComplicationData(complicationData);
+        active[index] = isActive(complicationData, currentTimeMillis);
+        int type = complicationData == null ? ComplicationData.TYPE_EMPTY : complicationData.getType();
+        timeDependent[index] = type == ComplicationData.TYPE_SHORT_TEXT
+                || type == ComplicationData.TYPE_LONG_TEXT
+                || type == ComplicationData.TYPE_RANGED_VALUE;
+        dirty[index] = true;
+    }
+
+    /**
+     * Returns a bit mask, by slot index, of the slots whose data draws something. Whether the
+     * data is currently active is not taken into account.
+     */
+    int getOccupiedSlots() {
+        int occupied = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int type = data[i] == null ? ComplicationData.TYPE_EMPTY : data[i].getType();
+            if (type != ComplicationData.TYPE_EMPTY && type != ComplicationData.TYPE_NOT_CONFIGURED) {
+                occupied |= 1 << i;
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Returns the bounds of the slots in a {@link #getOccupiedSlots} mask as left, top, right,
+     * bottom quadruples.
+     */
+    float[] getBounds(int slots) {
+        float[] rects = new float[4 * Integer.bitCount(slots)];
+        int offset = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if ((slots & 1 << i) != 0) {
+                rects[offset++] = bounds[i].left;
+                rects[offset++] = bounds[i].top;
+                rects[offset++] = bounds[i].right;
+                rects[offset++] = bounds[i].bottom;
+            }
+        }
+        return rects;
+    }
+
+    /**
+     * Returns the edge length complication images are scaled to, 0 before the bounds are set.
+     */
+    int getImageSize(int complicationId) {
+        Rect slotBounds = bounds[indexOf(complicationId)];
+        return Math.min(slotBounds.width(), slotBounds.height());
+    }
+
+    void setBounds(int complicationId, Rect slotBounds) {
+        int index = indexOf(complicationId);
+        bounds[index].set(slotBounds);
+        drawables[index].setBounds(slotBounds);
+        dirty[index] = true;
+    }
+
+    /**
+     * Returns the union of all slot bounds.
+     */
+    Rect getBounds() {
+        Rect union = new Rect();
+        for (Rect slotBounds : bounds) {
+            union.union(slotBounds);
+        }
+        return union;
+    }
+
+    /**
+     * Rebuilds the hit-test grid, must be called after the bounds of the slots changed.
+     */
+    void buildHitIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = 0;
+        }
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            Rect slotBounds = bounds[i];
+            if (slotBounds.isEmpty()) {
+                continue;
+            }
+            int left = cellColumn(slotBounds.left);
+            int right = cellColumn(slotBounds.right - 1);
+            int top = cellRow(slotBounds.top);
+            int bottom = cellRow(slotBounds.bottom - 1);
+            for (int row = top; row <= bottom; row++) {
+                for (int column = left; column <= right; column++) {
+                    cells[row * GRID + column] |= 1 << i;
+                }
+            }
+        }
+    }
+
+    void setInAmbientMode(boolean inAmbientMode) {
+        for (int i = 0; i < ids.length; i++) {
+            drawables[i].setInAmbientMode(inAmbientMode);
+            dirty[i] = true;
+        }
+    }
+
+    void setAmbientProperties(boolean lowBitAmbient, boolean burnInProtection) {
+        for (int i = 0; i < ids.length; i++) {
+            drawables[i].setLowBitAmbient(lowBitAmbient);
+            drawables[i].setBurnInProtection(burnInProtection);
+            dirty[i] = true;
+        }
+    }
+
+    /**
+     * Marks slots whose active state flipped and, on a new minute, slots with time dependent
+     * text for rendering.
+     *
+     * @return whether any slot needs to be rendered
+     */
+    boolean update(long currentTimeMillis, boolean minuteChanged) {
+        boolean anyDirty = false;
+        for (int i = 0; i < ids.length; i++) {
+            boolean isActive = isActive(data[i], currentTimeMillis);
+            if (isActive != active[i]) {
+                active[i] = isActive;
+                dirty[i] = true;
+            }
+            if (minuteChanged && isActive && timeDependent[i]) {
+                dirty[i] = true;
+            }
+            anyDirty |= dirty[i];
+        }
+        return anyDirty;
+    }
+
+    /**
+     * Draws the slots into a layer that keeps its content between frames.
+     *
+     * @param full whether the layer was cleared and every slot must be drawn, otherwise only the
+     *             marked slots are cleared and drawn again
+     */
+    void draw(Canvas canvas, long currentTimeMillis, boolean full) {
+        for (int i = 0; i < ids.length; i++) {
+            if (!full && !dirty[i]) {
+                continue;
+            }
+            dirty[i] = false;
+            if (!full) {
+                canvas.save();
+                canvas.clipRect(bounds[i]);
+                canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+                canvas.restore();
+            }
+            drawables[i].draw(canvas, currentTimeMillis);
+        }
+    }
+
+    /**
+     * Draws every slot directly onto a frame, leaving the marks untouched.
+     */
+    void drawAll(Canvas canvas, long currentTimeMillis) {
+        for (int i = 0; i < ids.length; i++) {
+            drawables[i].draw(canvas, currentTimeMillis);
+        }
+    }
+
+    /**
+     * Returns the id of the active, configured slot at the given position, or -1.
+     */
+    int findTappedSlot(int x, int y, long currentTimeMillis) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return -1;
+        }
+        int candidates = cells[cellRow(y) * GRID + cellColumn(x)];
+        while (candidates != 0) {
+            int index = Integer.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            ComplicationData complicationData = data[index];
+            if (bounds[index].contains(x, y)
+                    && isActive(complicationData, currentTimeMillis)
+                    && complicationData.getType() != ComplicationData.TYPE_NOT_CONFIGURED
+                    && complicationData.getType() != ComplicationData.TYPE_EMPTY) {
+                return ids[index];
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(int complicationId) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == complicationId) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown complication id: " + complicationId);
+    }
+
+    private int cellColumn(int x) {
+        return Math.max(0, Math.min(GRID - 1, x * GRID / width));
+    }
+
+    private int cellRow(int y) {
+        return Math.max(0, Math.min(GRID - 1, y * GRID / height));
+    }
+
+    private static boolean isActive(ComplicationData complicationData, long currentTimeMillis) {
+        return complicationData != null && complicationData.isActive(currentTimeMillis);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.textwatchface;
+
+import android.content.Context;
+import android.graphics.drawable.Icon;
+import android.os.Handler;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+import java.util.Objects;
+
+/**
+ * Collects complication data updates and applies them to the slots once per batch window, so a
+ * burst of providers pushing at the same time (after boot, on leaving ambient, on a shared timer)
+ * costs one frame instead of one per provider. Updates that would not change what the slot shows
+ * are dropped. Images are prepared by a {@link ComplicationImageLoader} first; an update whose
+ * images are still being decoded joins a later batch and the slot keeps showing its old data
+ * until then.
+ */
+final class ComplicationUpdateBatcher {
+
+    static final long DEFAULT_BATCH_WINDOW_MS = 100;
+
+    interface Listener {
+        /**
+         * Called on the handler's thread after the data of at least one slot changed.
+         */
+        void onComplicationsUpdated();
+    }
+
+    private final Context context;
+    private final ComplicationSlots slots;
+    private final Handler handler;
+    private final int flushMessage;
+    private final long batchWindowMs;
+    private final Listener listener;
+
+    private final ComplicationImageLoader imageLoader;
+    private final SparseArray<ComplicationData> pending;
+    /* Latest data as the providers sent it, before the images were prepared. */
+    private final SparseArray<ComplicationData> received;
+
+    /**
+     * @param flushMessage message id the handler routes to {@link #flush(long)}
+     */
+    ComplicationUpdateBatcher(Context context, ComplicationSlots slots, Handler handler,
+                              int flushMessage, long batchWindowMs, Listener listener) {
+        this.context = context;
+        this.slots = slots;
+        this.handler = handler;
+        this.flushMessage = flushMessage;
+        this.batchWindowMs = batchWindowMs;
+        this.listener = listener;
+        pending = new SparseArray<>(slots.size());
+        received = new SparseArray<>(slots.size());
+        imageLoader = new ComplicationImageLoader(context, handler,
+                ComplicationImageLoader.DEFAULT_CACHE_SIZE_BYTES, new ComplicationImageLoader.Callback() {
+                    @Override
+                    public void onImagesPrepared(int complicationId, ComplicationData prepared) {
+                        enqueue(complicationId, prepared);
+                    }
+                });
+    }
+
+    void onComplicationDataUpdate(int complicationId, ComplicationData data, long currentTimeMillis) {
+        ComplicationData previous = received.get(complicationId);
+        received.put(complicationId, data);
+        if (looksSame(previous, data, currentTimeMillis)) {
+            return;
+        }
+        prepare(complicationId, data);
+    }
+
+    /**
+     * Prepares the images of all slots again for their new size, must be called after the bounds
+     * of the slots changed.
+     */
+    void onSlotBoundsChanged() {
+        for (int i = 0; i < received.size(); i++) {
+            prepare(received.keyAt(i), received.valueAt(i));
+        }
+    }
+
+    /**
+     * Applies the pending updates, called when the batching message is handled.
+     */
+    void flush(long currentTimeMillis) {
+        if (pending.size() == 0) {
+            return;
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            slots.setData(pending.keyAt(i), pending.valueAt(i), currentTimeMillis);
+        }
+        pending.clear();
+        listener.onComplicationsUpdated();
+    }
+
+    void cancel() {
+        handler.removeMessages(flushMessage);
+        pending.clear();
+        imageLoader.cancel();
+    }
+
+    void release() {
+        cancel();
+        imageLoader.release();
+    }
+
+    private void prepare(int complicationId, ComplicationData data) {
+        ComplicationData prepared = imageLoader.prepare(complicationId, data,
+                slots.getImageSize(complicationId));
+        if (prepared != null) {
+            enqueue(complicationId, prepared);
+        }
+    }
+
+    private void enqueue(int complicationId, ComplicationData data) {
+        pending.put(complicationId, data);
+        if (!handler.hasMessages(flushMessage)) {
+            handler.sendEmptyMessageDelayed(flushMessage, batchWindowMs);
+        }
+    }
+
+    /*
+     * ComplicationData has no equals() and its parcel form can't be compared either, since the
+     * tap action carries a binder. Compare what the drawable renders instead: texts, ranged
+     * values, and icons that can be identified without decoding them. Only data that is shown
+     * the same at any time is compared at all; start and end times have no getters, so data
+     * with an active window is always taken as changed.
+     */
+    private boolean looksSame(ComplicationData a, ComplicationData b, long currentTimeMillis) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null || a.getType() != b.getType()
+                || !isAlwaysActive(a) || !isAlwaysActive(b)) {
+            return false;
+        }
+        return sameText(a.getShortText(), b.getShortText(), currentTimeMillis)
+                && sameText(a.getShortTitle(), b.getShortTitle(), currentTimeMillis)
+                && sameText(a.getLongText(), b.getLongText(), currentTimeMillis)
+                && sameText(a.getLongTitle(), b.getLongTitle(), currentTimeMillis)
+                && sameText(a.getContentDescription(), b.getContentDescription(), currentTimeMillis)
+                && a.getValue() == b.getValue()
+                && a.getMinValue() == b.getMinValue()
+                && a.getMaxValue() == b.getMaxValue()
+                && a.getImageStyle() == b.getImageStyle()
+                && sameIcon(a.getIcon(), b.getIcon())
+                && sameIcon(a.getBurnInProtectionIcon(), b.getBurnInProtectionIcon())
+                && sameIcon(a.getSmallImage(), b.getSmallImage())
+                && sameIcon(a.getBurnInProtectionSmallImage(), b.getBurnInProtectionSmallImage())
+                && sameIcon(a.getLargeImage(), b.getLargeImage())
+                && Objects.equals(a.getTapAction(), b.getTapAction());
+    }
+
+    /* Active from the start to the end of time, i.e. without a start or end time. */
+    private static boolean isAlwaysActive(ComplicationData data) {
+        return data.isActive(0) && data.isActive(Long.MAX_VALUE);
+    }
+
+    /*
+     * Texts are compared as they read right now, which only tells them apart if neither changes
+     * from now on. Time dependent texts, e.g. countdowns to different targets, may read the same
+     * at this instant, so they are only the same if they are the same object.
+     */
+    private boolean sameText(ComplicationText a, ComplicationText b, long currentTimeMillis) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null
+                || a.getNextChangeTime(currentTimeMillis) != Long.MAX_VALUE
+                || b.getNextChangeTime(currentTimeMillis) != Long.MAX_VALUE) {
+            return false;
+        }
+        return TextUtils.equals(a.getText(context, currentTimeMillis), b.getText(context, currentTimeMillis));
+    }
+
+    private static boolean sameIcon(Icon a, Icon b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a.getType() != b.getType()) {
+            return false;
+        }
+        switch (a.getType()) {
+            case Icon.TYPE_RESOURCE:
+                return a.getResId() == b.getResId() && Objects.equals(a.getResPackage(), b.getResPackage());
+            case Icon.TYPE_URI:
+                return Objects.equals(a.getUri(), b.getUri());
+            default:
+                /* Bitmaps would need decoding to compare, treat them as changed. */
+                return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.textwatchface;
+
+import android.os.Handler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State of the date overlay shown after a tap. The timeout runs on the engine's {@link Handler},
+ * so no thread is spawned per tap: a tap while the overlay is shown only extends the timeout,
+ * and taps in quick succession are ignored entirely.
+ */
+final class DateOverlay {
+
+    static final long TIMEOUT_MS = TimeUnit.SECONDS.toMillis(3);
+    static final long DEBOUNCE_MS = 300;
+
+    private final Handler handler;
+    private final int timeoutMessage;
+
+    private boolean visible;
+    private long lastTapTime;
+
+    /**
+     * @param timeoutMessage message id the handler routes to {@link #onTimeout()}
+     */
+    DateOverlay(Handler handler, int timeoutMessage) {
+        this.handler = handler;
+        this.timeoutMessage = timeoutMessage;
+    }
+
+    boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Shows the overlay or extends its timeout.
+     *
+     * @param eventTime uptime of the tap in milliseconds
+     * @return whether the overlay became visible and needs a redraw
+     */
+    boolean onTap(long eventTime) {
+        if (visible && eventTime - lastTapTime < DEBOUNCE_MS) {
+            return false;
+        }
+        lastTapTime = eventTime;
+        handler.removeMessages(timeoutMessage);
+        handler.sendEmptyMessageDelayed(timeoutMessage, TIMEOUT_MS);
+        if (visible) {
+            return false;
+        }
+        visible = true;
+        return true;
+    }
+
+    /**
+     * Called when the timeout message is handled.
+     *
+     * @return whether the overlay was hidden and needs a redraw
+     */
+    boolean onTimeout() {
+        return hide();
+    }
+
+    /**
+     * Hides the overlay immediately, e.g. when entering ambient mode.
+     *
+     * @return whether the overlay was visible and needs a redraw
+     */
+    boolean hide() {
+        handler.removeMessages(timeoutMessage);
+        if (!visible) {
+            return false;
+        }
+        visible = false;
+        return true;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.textwatchface;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Draws the frames of the watch face: the ambient frame through an {@link AmbientRenderer}, the
+ * interactive frame and the date overlay from cached layers through a {@link LayerCompositor}.
+ * The engine feeds it the state that lives in Android services, like the battery level, as plain
+ * values, so the class only draws through android.graphics and the allocation gate runs it as it
+ * ships. All methods must be called on the main thread.
+ */
+final class FrameRenderer implements LayerCompositor.LayerRenderer {
+
+    /* Range of the phrase text size as a fraction of the surface width, see TextSizeFitter. */
+    static final float MIN_PHRASE_TEXT_SCALE = 0.07f;
+    static final float MAX_PHRASE_TEXT_SCALE = 0.16f;
+
+    interface Listener {
+        /**
+         * Called from {@link #draw} when a phrase change started a transition. Its frames are due
+         * every {@link PhraseTransition#FRAME_INTERVAL_MS} until {@link #isPhraseTransitionRunning}
+         * turns false.
+         */
+        void onPhraseTransitionStarted(long uptimeMillis);
+    }
+
+    private final WallClock wallClock;
+    private final ComplicationSlots complicationSlots;
+    private final AmbientRenderer ambientRenderer;
+    private final WakeupLog wakeupLog;
+    private final Paint textPaint;
+    private final Paint hourPaint;
+    private final Paint miscPaint;
+    private final Listener listener;
+    private final LayerCompositor layerCompositor;
+    private final PhraseTransition phraseTransition = new PhraseTransition();
+    private final FrameStats frameStats = new FrameStats(FrameStats.DEFAULT_BUDGET_NANOS);
+    private final char[] frameStatsText = new char[64];
+    private boolean showFrameStats;
+
+    private PhraseTable phraseTable;
+    private TextLayoutCache textLayoutCache;
+    private ClockFormatter clockFormatter;
+
+    private int width;
+    private float centerX;
+    private float centerY;
+    /* Text size of the date overlay, the status line is drawn at half of it. */
+    private int textSize;
+    private boolean ambient;
+
+    /* Left edge of the status line and date overlay texts, NaN until measured. */
+    private float statusLineX = Float.NaN;
+    private float weekdayX = Float.NaN;
+    private float dateX = Float.NaN;
+
+    /* Inputs the cached layers were last rendered from. */
+    private Phrase drawnPhrase;
+    private boolean drawnShowDate;
+    private int drawnComplicationMinute = -1;
+    private long frameTimeMillis;
+
+    /**
+     * @param textPaint paint of the phrase and the date, configured by the caller
+     * @param hourPaint paint of the hour word and the weekday, configured by the caller
+     * @param miscPaint paint of the status line, configured by the caller
+     */
+    FrameRenderer(WallClock wallClock, ComplicationSlots complicationSlots,
+                  AmbientRenderer ambientRenderer, WakeupLog wakeupLog, Paint textPaint,
+                  Paint hourPaint, Paint miscPaint, Listener listener) {
+        this.wallClock = wallClock;
+        this.complicationSlots = complicationSlots;
+        this.ambientRenderer = ambientRenderer;
+        this.wakeupLog = wakeupLog;
+        this.textPaint = textPaint;
+        this.hourPaint = hourPaint;
+        this.miscPaint = miscPaint;
+        this.listener = listener;
+        layerCompositor = new LayerCompositor(this);
+    }
+
+    FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    /**
+     * Draws the frame time summary of the current mode on top of every frame.
+     */
+    void setShowFrameStats(boolean showFrameStats) {
+        this.showFrameStats = showFrameStats;
+    }
+
+    void setPhrases(PhraseTable phraseTable, TextLayoutCache textLayoutCache,
+                    ClockFormatter clockFormatter) {
+        this.phraseTable = phraseTable;
+        this.textLayoutCache = textLayoutCache;
+        this.clockFormatter = clockFormatter;
+        phraseTransition.cancel();
+        drawnPhrase = null;
+        layerCompositor.invalidateAll();
+    }
+
+    void setTextSize(int textSize) {
+        this.textSize = textSize;
+    }
+
+    /**
+     * Places the layers on a new surface; the complication slots must have their bounds already.
+     */
+    void setSurfaceSize(int width, int height) {
+        this.width = width;
+        centerX = width / 2f;
+        centerY = height / 2f;
+        layerCompositor.setLayerBounds(LayerCompositor.LAYER_PHRASE, new Rect(0, 0, width, height));
+        updateStatusLayerBounds();
+        layerCompositor.setLayerBounds(LayerCompositor.LAYER_COMPLICATIONS, complicationSlots.getBounds());
+    }
+
+    void setAmbient(boolean ambient) {
+        this.ambient = ambient;
+        if (ambient) {
+            /* No transitions in ambient, and none from a stale phrase when leaving it. */
+            phraseTransition.cancel();
+            drawnPhrase = null;
+        }
+        layerCompositor.invalidateAll();
+    }
+
+    /**
+     * Renders the phrase layer again and measures the date overlay again, after the phrase
+     * paints or layouts changed.
+     */
+    void invalidatePhrase() {
+        weekdayX = Float.NaN;
+        dateX = Float.NaN;
+        layerCompositor.invalidate(LayerCompositor.LAYER_PHRASE);
+    }
+
+    /**
+     * Renders the status line again and resizes its layer, after the status paint or the text
+     * size changed.
+     */
+    void invalidateStatus() {
+        statusLineX = Float.NaN;
+        updateStatusLayerBounds();
+        layerCompositor.invalidate(LayerCompositor.LAYER_STATUS);
+    }
+
+    /**
+     * Draws the complication slots that were marked for rendering again.
+     */
+    void invalidateComplications() {
+        layerCompositor.invalidatePartial(LayerCompositor.LAYER_COMPLICATIONS);
+    }
+
+    void invalidateAll() {
+        layerCompositor.invalidateAll();
+    }
+
+    boolean isPhraseTransitionRunning() {
+        return phraseTransition.isRunning();
+    }
+
+    void cancelPhraseTransition() {
+        if (phraseTransition.isRunning()) {
+            phraseTransition.cancel();
+            layerCompositor.invalidate(LayerCompositor.LAYER_PHRASE);
+        }
+    }
+
+    /**
+     * @param showDate whether the date overlay replaces the phrase
+     * @param batteryPercent battery level for the status line, -1 if unknown
+     * @param uptimeMillis time the phrase transition is animated on
+     */
+    void draw(Canvas canvas, boolean showDate, int batteryPercent, long uptimeMillis) {
+        long startNanos = System.nanoTime();
+        wakeupLog.recordDraw();
+        frameTimeMillis = wallClock.update();
+        int mode;
+        if (ambient) {
+            Phrase phrase = phraseTable.get(wallClock.getHour(), wallClock.getMinute());
+            ambientRenderer.draw(canvas, textLayoutCache.get(phrase), frameTimeMillis);
+            mode = FrameStats.MODE_AMBIENT;
+        } else {
+            updateLayers(showDate, batteryPercent, uptimeMillis);
+            layerCompositor.draw(canvas);
+            mode = drawnShowDate ? FrameStats.MODE_DATE_OVERLAY : FrameStats.MODE_INTERACTIVE;
+        }
+        frameStats.record(mode, System.nanoTime() - startNanos);
+
+        if (showFrameStats) {
+            int length = frameStats.writeSummary(mode, frameStatsText);
+            float x = centerX - miscPaint.measureText(frameStatsText, 0, length)/2;
+            canvas.drawText(frameStatsText, 0, length, x, centerY + textSize*2, miscPaint);
+        }
+    }
+
+    void release() {
+        layerCompositor.release();
+    }
+
+    /**
+     * Marks every layer whose input changed since it was last rendered as dirty.
+     */
+    private void updateLayers(boolean showDate, int batteryPercent, long uptimeMillis) {
+        int minute = wallClock.getMinute();
+        Phrase phrase = phraseTable.get(wallClock.getHour(), minute);
+        if (phrase != drawnPhrase || showDate != drawnShowDate) {
+            if (showDate) {
+                phraseTransition.cancel();
+            } else if (drawnPhrase != null && phrase != drawnPhrase && !drawnShowDate) {
+                phraseTransition.start(textLayoutCache.get(drawnPhrase), textLayoutCache.get(phrase),
+                        uptimeMillis);
+                listener.onPhraseTransitionStarted(uptimeMillis);
+            }
+            drawnPhrase = phrase;
+            drawnShowDate = showDate;
+            layerCompositor.invalidate(LayerCompositor.LAYER_PHRASE);
+        }
+        if (phraseTransition.isRunning()) {
+            /* Renders the animated frame, and the settled phrase once the transition ended. */
+            phraseTransition.update(uptimeMillis);
+            layerCompositor.invalidate(LayerCompositor.LAYER_PHRASE);
+        }
+        if (drawnShowDate && clockFormatter.updateDate(wallClock.getYear(), wallClock.getMonth(),
+                wallClock.getDayOfMonth(), wallClock.getDayOfWeek())) {
+            weekdayX = Float.NaN;
+            layerCompositor.invalidate(LayerCompositor.LAYER_PHRASE);
+        }
+        if (clockFormatter.updateStatusLine(wallClock.getHourOfDay(), minute, batteryPercent)) {
+            statusLineX = Float.NaN;
+            layerCompositor.invalidate(LayerCompositor.LAYER_STATUS);
+        }
+        /* Complication texts can be time dependent, refresh them once a minute. */
+        boolean minuteChanged = minute != drawnComplicationMinute;
+        drawnComplicationMinute = minute;
+        if (complicationSlots.update(frameTimeMillis, minuteChanged)) {
+            layerCompositor.invalidatePartial(LayerCompositor.LAYER_COMPLICATIONS);
+        }
+    }
+
+    @Override
+    public void renderLayer(int layer, Canvas canvas, boolean full) {
+        switch (layer) {
+            case LayerCompositor.LAYER_PHRASE:
+                if (drawnShowDate)
+                    drawDate(canvas);
+                else if (phraseTransition.isRunning())
+                    phraseTransition.draw(canvas, textPaint, hourPaint);
+                else
+                    drawWatchFace(canvas, drawnPhrase);
+                break;
+            case LayerCompositor.LAYER_STATUS:
+                drawMisc(canvas);
+                break;
+            case LayerCompositor.LAYER_COMPLICATIONS:
+                complicationSlots.draw(canvas, frameTimeMillis, full);
+                break;
+        }
+    }
+
+    private void drawDate(Canvas canvas) {
+        char[] weekday = clockFormatter.weekday;
+        int weekdayLength = clockFormatter.weekdayLength;
+        char[] date = clockFormatter.date;
+        int dateLength = clockFormatter.dateLength;
+        textPaint.setTextSize(textSize);
+        hourPaint.setTextSize(textSize);
+        if (Float.isNaN(weekdayX)) {
+            weekdayX = centerX - textPaint.measureText(weekday, 0, weekdayLength)/2;
+            dateX = centerX - textPaint.measureText(date, 0, dateLength)/2;
+        }
+        canvas.drawText(weekday, 0, weekdayLength, weekdayX, centerY - textSize, hourPaint);
+        canvas.drawText(date, 0, dateLength, dateX, centerY +textSize, textPaint);
+    }
+
+    private void drawMisc(Canvas canvas) {
+        char[] text = clockFormatter.statusLine;
+        int length = clockFormatter.statusLineLength;
+        if (Float.isNaN(statusLineX)) {
+            statusLineX = centerX - miscPaint.measureText(text, 0, length)/2;
+        }
+        canvas.drawText(text, 0, length, statusLineX, textSize + 10, miscPaint);
+    }
+
+    private void drawWatchFace(Canvas canvas, Phrase phrase) {
+        PhraseLayout layout = textLayoutCache.get(phrase);
+        textPaint.setTextSize(layout.textSize);
+        hourPaint.setTextSize(layout.textSize);
+        for (int i = 0; i < phrase.runs.length; i++) {
+            Paint paint = i == phrase.hourRun ? hourPaint : textPaint;
+            canvas.drawText(phrase.runs[i], layout.runX[i], layout.runY[i], paint);
+        }
+    }
+
+    private void updateStatusLayerBounds() {
+        if (width <= 0) {
+            return;
+        }
+        int statusLineBottom = (int) Math.ceil(textSize + 10 + miscPaint.descent());
+        layerCompositor.setLayerBounds(LayerCompositor.LAYER_STATUS, new Rect(0, 0, width, statusLineBottom));
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.textwatchface;
+
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed size histogram of frame draw durations per render mode. Recording a frame is a few
+ * array writes and never allocates, so it can stay enabled in release builds.
+ */
+final class FrameStats {
+
+    static final int MODE_INTERACTIVE = 0;
+    static final int MODE_AMBIENT = 1;
+    static final int MODE_DATE_OVERLAY = 2;
+    static final int MODE_COUNT = 3;
+
+    static final long DEFAULT_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private static final String[] MODE_NAMES = {"interactive", "ambient", "date overlay"};
+
+    /* Upper bounds of the histogram buckets in microseconds, the last bucket is unbounded. */
+    private static final long[] BUCKET_BOUNDS_US = {
+            250, 500, 1000, 2000, 4000, 8000, 16000, 32000, 64000
+    };
+    private static final int BUCKET_COUNT = BUCKET_BOUNDS_US.length + 1;
+
+    private final long budgetNanos;
+    private final long[][] buckets = new long[MODE_COUNT][BUCKET_COUNT];
+    private final long[] frames = new long[MODE_COUNT];
+    private final long[] jankFrames = new long[MODE_COUNT];
+    private final long[] totalNanos = new long[MODE_COUNT];
+    private final long[] maxNanos = new long[MODE_COUNT];
+
+    /**
+     * @param budgetNanos frames that take longer are counted as jank
+     */
+    FrameStats(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    void record(int mode, long durationNanos) {
+        long durationUs = durationNanos / 1000;
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_US.length && durationUs > BUCKET_BOUNDS_US[bucket]) {
+            bucket++;
+        }
+        buckets[mode][bucket]++;
+        frames[mode]++;
+        totalNanos[mode] += durationNanos;
+        if (durationNanos > maxNanos[mode]) {
+            maxNanos[mode] = durationNanos;
+        }
+        if (durationNanos > budgetNanos) {
+            jankFrames[mode]++;
+        }
+    }
+
+    void reset() {
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                buckets[mode][bucket] = 0;
+            }
+            frames[mode] = 0;
+            jankFrames[mode] = 0;
+            totalNanos[mode] = 0;
+            maxNanos[mode] = 0;
+        }
+    }
+
+    /**
+     * Writes a one line summary of a mode ("I 1234 j3 max12.5") into the buffer for the debug
+     * overlay.
+     *
+     * @return the number of chars written
+     */
+    int writeSummary(int mode, char[] buffer) {
+        int length = 0;
+        buffer[length++] = Character.toUpperCase(MODE_NAMES[mode].charAt(0));
+        buffer[length++] = ' ';
+        length = writeLong(buffer, length, frames[mode]);
+        buffer[length++] = ' ';
+        buffer[length++] = 'j';
+        length = writeLong(buffer, length, jankFrames[mode]);
+        buffer[length++] = ' ';
+        buffer[length++] = 'm';
+        buffer[length++] = 'a';
+        buffer[length++] = 'x';
+        long maxTenthMs = maxNanos[mode] / 100000;
+        length = writeLong(buffer, length, maxTenthMs / 10);
+        buffer[length++] = '.';
+        buffer[length++] = (char) ('0' + maxTenthMs % 10);
+        return length;
+    }
+
+    void dump(PrintWriter writer) {
+        writer.println("Frame stats (budget " + budgetNanos / 1000 + "us):");
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            long count = frames[mode];
+            writer.print("  " + MODE_NAMES[mode] + ": " + count + " frames, " + jankFrames[mode]
+                    + " over budget");
+            if (count == 0) {
+                writer.println();
+                continue;
+            }
+            writer.println(", mean " + totalNanos[mode] / count / 1000 + "us, max "
+                    + maxNanos[mode] / 1000 + "us, p50 <=" + percentileBound(mode, 50)
+                    + ", p90 <=" + percentileBound(mode, 90) + ", p99 <=" + percentileBound(mode, 99));
+            writer.print("   ");
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                writer.print(" " + bucketName(bucket) + ":" + buckets[mode][bucket]);
+            }
+            writer.println();
+        }
+    }
+
+    private String percentileBound(int mode, int percentile) {
+        long threshold = (frames[mode] * percentile + 99) / 100;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += buckets[mode][bucket];
+            if (seen >= threshold) {
+                return bucketName(bucket);
+            }
+        }
+        return bucketName(BUCKET_COUNT - 1);
+    }
+
+    private static String bucketName(int bucket) {
+        if (bucket == BUCKET_BOUNDS_US.length) {
+            return ">" + BUCKET_BOUNDS_US[bucket - 1] + "us";
+        }
+        return BUCKET_BOUNDS_US[bucket] + "us";
+    }
+
+    private static int writeLong(char[] buffer, int offset, long value) {
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[offset + i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.textwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+/**
+ * Composes a frame from offscreen layer bitmaps. Every layer is only rendered again after it has
+ * been marked dirty, so a frame whose inputs did not change is just a few bitmap blits.
+ */
+final class LayerCompositor {
+
+    static final int LAYER_PHRASE = 0;
+    static final int LAYER_STATUS = 1;
+    static final int LAYER_COMPLICATIONS = 2;
+    static final int LAYER_COUNT = 3;
+
+    /**
+     * Renders the content of a layer. The canvas is translated so the renderer draws in surface
+     * coordinates.
+     */
+    interface LayerRenderer {
+        /**
+         * @param full whether the layer was cleared and must be drawn completely; otherwise it
+         *             was only partially invalidated and the renderer clears and redraws the
+         *             parts it knows changed
+         */
+        void renderLayer(int layer, Canvas canvas, boolean full);
+    }
+
+    private static final int CLEAN = 0;
+    private static final int PARTIAL = 1;
+    private static final int FULL = 2;
+
+    private final LayerRenderer renderer;
+    private final Rect[] bounds = new Rect[LAYER_COUNT];
+    private final Bitmap[] bitmaps = new Bitmap[LAYER_COUNT];
+    private final Canvas[] canvases = new Canvas[LAYER_COUNT];
+    private final int[] dirty = new int[LAYER_COUNT];
+
+    LayerCompositor(LayerRenderer renderer) {
+        this.renderer = renderer;
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            bounds[i] = new Rect();
+        }
+    }
+
+    /**
+     * Places a layer on the surface, reallocating its bitmap if the size changed. An empty rect
+     * disables the layer.
+     */
+    void setLayerBounds(int layer, Rect layerBounds) {
+        Rect current = bounds[layer];
+        if (current.width() != layerBounds.width() || current.height() != layerBounds.height()) {
+            releaseLayer(layer);
+            if (!layerBounds.isEmpty()) {
+                bitmaps[layer] = Bitmap.createBitmap(
+                        layerBounds.width(), layerBounds.height(), Bitmap.Config.ARGB_8888);
+            }
+        }
+        current.set(layerBounds);
+        if (bitmaps[layer] != null) {
+            canvases[layer] = new Canvas(bitmaps[layer]);
+            canvases[layer].translate(-layerBounds.left, -layerBounds.top);
+        }
+        dirty[layer] = FULL;
+    }
+
+    void invalidate(int layer) {
+        dirty[layer] = FULL;
+    }
+
+    /**
+     * Marks a layer for a partial update, see {@link LayerRenderer#renderLayer}.
+     */
+    void invalidatePartial(int layer) {
+        if (dirty[layer] == CLEAN) {
+            dirty[layer] = PARTIAL;
+        }
+    }
+
+    void invalidateAll() {
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            dirty[i] = FULL;
+        }
+    }
+
+    /**
+     * Renders the dirty layers and blits all layers onto a black background.
+     */
+    void draw(Canvas canvas) {
+        canvas.drawColor(Color.BLACK);
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            Bitmap bitmap = bitmaps[i];
+            if (bitmap == null) {
+                continue;
+            }
+            if (dirty[i] != CLEAN) {
+                boolean full = dirty[i] == FULL;
+                dirty[i] = CLEAN;
+                if (full) {
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                }
+                renderer.renderLayer(i, canvases[i], full);
+            }
+            canvas.drawBitmap(bitmap, bounds[i].left, bounds[i].top, null);
+        }
+    }
+
+    void release() {
+        for (int i = 0; i < LAYER_COUNT; i++) {
+            releaseLayer(i);
+            bounds[i].setEmpty();
+        }
+    }
+
+    private void releaseLayer(int layer) {
+        if (bitmaps[layer] != null) {
+            bitmaps[layer].recycle();
+            bitmaps[layer] = null;
+            canvases[layer] = null;
+        }
+    }
+}
@@ -6,38 +6,43 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.drawable.Drawable;
-import android.os.BatteryManager;
+import android.graphics.Typeface;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 
 import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.complications.ComplicationHelperActivity;
-import android.support.wearable.complications.ProviderInfoRetriever;
 import android.support.wearable.complications.rendering.ComplicationDrawable;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
 import android.util.Log;
-import android.util.SparseArray;
 import android.view.SurfaceHolder;
-import android.widget.ImageButton;
-import android.widget.ImageView;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.ref.WeakReference;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
-import java.util.TimeZone;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Analog watch face with a ticking second hand. In ambient mode, the second hand isn"t
@@ -54,33 +59,48 @@ import java.util.concurrent.TimeUnit;
 public class MyWatchFace extends CanvasWatchFaceService {
 
     /*
-     * Updates rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
+     * Draws the frame time summary of the current mode on top of the face, for profiling on a
+     * device. The full histogram is always available through dumpsys.
      */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final boolean SHOW_FRAME_STATS = false;
+
+    private static final int BOTTOM_COMPLICATION_ID = 0;
+    private static final int LEFT_COMPLICATION_ID = 1;
+    private static final int RIGHT_COMPLICATION_ID = 2;
+    private static final int TOP_LEFT_COMPLICATION_ID = 3;
+    private static final int TOP_RIGHT_COMPLICATION_ID = 4;
+    private static final int BOTTOM_LEFT_COMPLICATION_ID = 5;
+    private static final int BOTTOM_RIGHT_COMPLICATION_ID = 6;
+    private static final int[] COMPLICATION_IDS = {
+            BOTTOM_COMPLICATION_ID,
+            LEFT_COMPLICATION_ID,
+            RIGHT_COMPLICATION_ID,
+            TOP_LEFT_COMPLICATION_ID,
+            TOP_RIGHT_COMPLICATION_ID,
+            BOTTOM_LEFT_COMPLICATION_ID,
+            BOTTOM_RIGHT_COMPLICATION_ID
+    };
 
-    private static final int COMPLICATION_ID = 0;
-    private static final int[] COMPLICATION_IDS = {COMPLICATION_ID};
+    /*
+     * Position of the slots on a ring around the phrase, in degrees clockwise from 3 o'clock,
+     * in the order of COMPLICATION_IDS. The bottom slot sits below the ring and is laid out
+     * separately.
+     */
+    private static final float[] COMPLICATION_ANGLES = {Float.NaN, 180, 0, 225, 315, 135, 45};
 
-    private static final int[][] COMPLICATION_SUPPORTED_TYPES = {
-            {
-                    ComplicationData.TYPE_RANGED_VALUE,
-                    ComplicationData.TYPE_ICON,
-                    ComplicationData.TYPE_SHORT_TEXT,
-                    ComplicationData.TYPE_SMALL_IMAGE
-            }
+    private static final int[] COMPLICATION_SUPPORTED_TYPES = {
+            ComplicationData.TYPE_RANGED_VALUE,
+            ComplicationData.TYPE_ICON,
+            ComplicationData.TYPE_SHORT_TEXT,
+            ComplicationData.TYPE_SMALL_IMAGE
     };
 
-    static int getComplicationId() {
-        return COMPLICATION_ID;
-    }
-
     static int[] getComplicationIds() {
         return COMPLICATION_IDS;
     }
 
-    static int[] getSupportedComplicationTypes() {
-        return COMPLICATION_SUPPORTED_TYPES[COMPLICATION_ID];
+    static int[] getSupportedComplicationTypes(int complicationId) {
+        return COMPLICATION_SUPPORTED_TYPES;
     }
 
     /**
@@ -88,11 +108,97 @@ public class MyWatchFace extends CanvasWatchFaceService {
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Handler message id for hiding the date overlay after a tap.
+     */
+    private static final int MSG_HIDE_DATE = 1;
+
+    /**
+     * Handler message id for publishing a coalesced battery change.
+     */
+    private static final int MSG_BATTERY_CHANGED = 2;
+
+    /**
+     * Handler message id for applying a batch of complication data updates.
+     */
+    private static final int MSG_FLUSH_COMPLICATIONS = 3;
+
+    /**
+     * Handler message id for the frames of a running phrase transition.
+     */
+    private static final int MSG_ANIMATE_PHRASE = 4;
+
+    /**
+     * Handler message id for rebuilding the ambient word atlas after its inputs changed.
+     */
+    private static final int MSG_BUILD_ATLAS = 5;
+
+    /* How long dump waits for the main thread and the wakeup log writer. */
+    private static final long DUMP_TIMEOUT_MS = 5000;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Engine> engines = new ArrayList<>();
+    private WakeupLog wakeupLog;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        wakeupLog = new WakeupLog(new File(getFilesDir(), WakeupLog.FILE_NAME));
+    }
+
+    @Override
+    public void onDestroy() {
+        wakeupLog.close();
+        super.onDestroy();
+    }
+
     @Override
     public Engine onCreateEngine() {
         return new Engine();
     }
 
+    /*
+     * Runs on a binder thread. The engines, their frame stats, the shared typefaces and the wakeup
+     * log belong to the main thread, so they are copied there and printed here.
+     */
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(fd, writer, args);
+        final StringWriter engineDump = new StringWriter();
+        FutureTask<Future<TreeMap<Long, int[]>>> snapshot = new FutureTask<>(
+                new Callable<Future<TreeMap<Long, int[]>>>() {
+                    @Override
+                    public Future<TreeMap<Long, int[]>> call() {
+                        PrintWriter out = new PrintWriter(engineDump);
+                        for (int i = 0; i < engines.size(); i++) {
+                            Engine engine = engines.get(i);
+                            out.println("Engine " + i + (engine.isPreview() ? " (preview)" : "") + ":");
+                            engine.frameRenderer.getFrameStats().dump(out);
+                        }
+                        if (!engines.isEmpty()) {
+                            engines.get(0).sharedResources.dump(out);
+                        }
+                        out.flush();
+                        return wakeupLog.snapshot();
+                    }
+                });
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            snapshot.run();
+        } else {
+            mainHandler.post(snapshot);
+        }
+        try {
+            TreeMap<Long, int[]> wakeups = snapshot.get(DUMP_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                    .get(DUMP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            writer.print(engineDump);
+            WakeupLog.print(writer, wakeups, Arrays.asList(args).contains("--wakeup-minutes"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            writer.println("Collecting the engine state failed: " + e);
+        }
+    }
+
     private static class EngineHandler extends Handler {
         private final WeakReference<MyWatchFace.Engine> mWeakReference;
 
@@ -108,43 +214,63 @@ public class MyWatchFace extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
+                    case MSG_HIDE_DATE:
+                        engine.handleHideDateMessage();
+                        break;
+                    case MSG_BATTERY_CHANGED:
+                        engine.handleBatteryChangedMessage();
+                        break;
+                    case MSG_FLUSH_COMPLICATIONS:
+                        engine.complicationUpdateBatcher.flush(System.currentTimeMillis());
+                        break;
+                    case MSG_ANIMATE_PHRASE:
+                        engine.handleAnimatePhraseMessage();
+                        break;
+                    case MSG_BUILD_ATLAS:
+                        engine.handleBuildAtlasMessage();
+                        break;
                 }
             }
         }
     }
 
     private class Engine extends CanvasWatchFaceService.Engine {
-        /* Handler to update the time once a second in interactive mode. */
+        /* Handler to update the time whenever the displayed content changes in interactive mode. */
         private final Handler updateTimeHandler = new EngineHandler(this);
-        private Calendar calendar;
+        private final WallClock wallClock = new WallClock(WallClock.SYSTEM_TIME, ZoneId.systemDefault());
         private final BroadcastReceiver timeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                calendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
-            }
-        };
-        private final BroadcastReceiver batteryReceiver = new BroadcastReceiver() {
-            @Override
-            public void onReceive(Context context, Intent intent) {
-                int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-                int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-                battery = (int)(level * 100 / (float)scale);
+                wakeupLog.recordWakeup(WakeupLog.SOURCE_RECEIVER);
+                if (Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+                    updateLocale(WakeupLog.SOURCE_RECEIVER);
+                    return;
+                }
+                wallClock.setZone(ZoneId.systemDefault());
+                invalidate(WakeupLog.SOURCE_RECEIVER);
+                updateTimer();
             }
         };
         private boolean registeredTimeZoneReceiver = false;
-        private boolean registeredBatteryReceiver = false;
-        private boolean muteMode;
-        private boolean showDate;
+        private DateOverlay dateOverlay;
         private float centerX;
         private float height;
         private float width;
         private float centerY;
-        private int battery;
-        private int textSize = 55;
-        private int textColor = Color.WHITE;
-        private int hourColor = Color.RED;
-        private int miscColor = Color.WHITE;
+        private BatteryMonitor batteryMonitor;
+        private int textSize = StyleSettings.DEFAULT_TEXT_SIZE;
+        private SharedPreferences stylePreferences;
+        private StyleSettings style = StyleSettings.DEFAULT;
+        private final SharedPreferences.OnSharedPreferenceChangeListener styleListener =
+                new SharedPreferences.OnSharedPreferenceChangeListener() {
+                    @Override
+                    public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+                        wakeupLog.recordWakeup(WakeupLog.SOURCE_STYLE);
+                        if (StyleSettings.KEY.equals(key)) {
+                            updateStyle(StyleSettings.read(preferences));
+                        }
+                    }
+                };
         private Paint textPaint;
         private Paint hourPaint;
         private Paint miscPaint;
@@ -152,23 +278,48 @@ public class MyWatchFace extends CanvasWatchFaceService {
         private boolean isLowBitAmbient;
         private boolean isBurnInProtecrion;
 
-        private SparseArray<ComplicationData> activeComplicationDataSparseArray;
-        private SparseArray<ComplicationDrawable> complicationDrawableSparseArray;
-
-        private String[] hourNames = {
-                "zwölf",
-                "eins",
-                "zwei",
-                "drei",
-                "vier",
-                "fünf",
-                "sechs",
-                "sieben",
-                "acht",
-                "neun",
-                "zehn",
-                "elf",
-                "zwölf"
+        private ComplicationSlots complicationSlots;
+        private ComplicationUpdateBatcher complicationUpdateBatcher;
+        /* Slots the phrase was last fitted around, see ComplicationSlots#getOccupiedSlots. */
+        private int occupiedSlots;
+
+        /* Locale the phrase table and formatter were built for. */
+        private Locale phraseLocale;
+        private PhraseTable phraseTable;
+        private ClockFormatter clockFormatter;
+        private TextLayoutCache textLayoutCache;
+        private final Paint measurePaint = new Paint();
+        private final TextMeasurer textMeasurer = new TextMeasurer() {
+            @Override
+            public float measureText(String text, float textSize) {
+                measurePaint.setTypeface(textPaint.getTypeface());
+                measurePaint.setTextSize(textSize);
+                return measurePaint.measureText(text);
+            }
+        };
+        /* Uptime the next animation frame is scheduled for. */
+        private long nextAnimationFrameMillis;
+
+        private FrameRenderer frameRenderer;
+        private AmbientRenderer ambientRenderer;
+
+        private SharedResources sharedResources;
+        private final SharedResources.Listener typefaceListener = new SharedResources.Listener() {
+            @Override
+            public void onTypefaceLoaded(int font) {
+                wakeupLog.recordWakeup(WakeupLog.SOURCE_STYLE);
+                int changes = 0;
+                if (font == style.phraseFont) {
+                    changes |= StyleSettings.CHANGED_PHRASE_FONT;
+                }
+                if (font == style.miscFont) {
+                    changes |= StyleSettings.CHANGED_MISC_FONT;
+                }
+                if (changes != 0) {
+                    applyStyle(changes);
+                    invalidate(WakeupLog.SOURCE_STYLE);
+                }
+            }
         };
 
         @Override
@@ -179,46 +330,193 @@ public class MyWatchFace extends CanvasWatchFaceService {
                     .setHideStatusBar(true)
                     .build());
 
-            calendar = Calendar.getInstance();
+            engines.add(this);
+            sharedResources = SharedResources.acquire(MyWatchFace.this);
+            sharedResources.addListener(typefaceListener);
+            stylePreferences = getSharedPreferences(StyleSettings.PREFERENCES_NAME, MODE_PRIVATE);
+            style = StyleSettings.read(stylePreferences);
+            stylePreferences.registerOnSharedPreferenceChangeListener(styleListener);
+            dateOverlay = new DateOverlay(updateTimeHandler, MSG_HIDE_DATE);
+            batteryMonitor = new BatteryMonitor(MyWatchFace.this, updateTimeHandler, MSG_BATTERY_CHANGED,
+                    BatteryMonitor.DEFAULT_COALESCE_WINDOW_MS, new BatteryMonitor.Listener() {
+                        @Override
+                        public void onBatteryChanged() {
+                            invalidate(WakeupLog.SOURCE_BATTERY);
+                        }
+                    });
+            ambientRenderer = new AmbientRenderer(new AmbientRenderer.ComplicationPainter() {
+                @Override
+                public void drawComplications(Canvas canvas, long currentTimeMillis) {
+                    complicationSlots.drawAll(canvas, currentTimeMillis);
+                }
+            });
 
             initializeComplications();
             initializePaint();
+            frameRenderer = new FrameRenderer(wallClock, complicationSlots, ambientRenderer, wakeupLog,
+                    textPaint, hourPaint, miscPaint, new FrameRenderer.Listener() {
+                        @Override
+                        public void onPhraseTransitionStarted(long uptimeMillis) {
+                            schedulePhraseTransition(uptimeMillis);
+                        }
+                    });
+            frameRenderer.setShowFrameStats(SHOW_FRAME_STATS);
+            initializePhrases();
+            applyStyle(StyleSettings.CHANGED_ALL);
         }
 
-        private void initializeComplications() {
-            activeComplicationDataSparseArray = new SparseArray<>(COMPLICATION_IDS.length);
-            ComplicationDrawable drawable = (ComplicationDrawable) getDrawable(R.drawable.custom_complication_styles);
-            drawable.setContext(getApplicationContext());
+        /**
+         * Compiles the phrase table and formatter for the current locale.
+         */
+        private void initializePhrases() {
+            phraseLocale = Locale.getDefault();
+            TimePhraseProvider provider = TimePhraseProviders.forLocale(phraseLocale);
+            phraseTable = sharedResources.getPhraseTable(provider);
+            clockFormatter = new ClockFormatter(provider.getLocale());
+            textLayoutCache = new TextLayoutCache(phraseTable, textMeasurer);
+            ambientRenderer.setPhrases(phraseTable, textLayoutCache);
+            scheduleAtlasBuild();
+            cancelPhraseTransition();
+            frameRenderer.setPhrases(phraseTable, textLayoutCache, clockFormatter);
+        }
 
-            complicationDrawableSparseArray = new SparseArray<>(COMPLICATION_IDS.length);
-            complicationDrawableSparseArray.put(COMPLICATION_ID, drawable);
+        /**
+         * Recompiles the phrases if the locale changed since they were built.
+         *
+         * @param source WakeupLog.SOURCE_* constant the check was triggered by
+         */
+        private void updateLocale(int source) {
+            if (Locale.getDefault().equals(phraseLocale)) {
+                return;
+            }
+            initializePhrases();
+            invalidateTextLayout();
+            invalidate(source);
+            updateTimer();
+        }
+
+        private void initializeComplications() {
+            ComplicationDrawable[] drawables = new ComplicationDrawable[COMPLICATION_IDS.length];
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                drawables[i] = (ComplicationDrawable) getDrawable(R.drawable.custom_complication_styles);
+                drawables[i].setContext(getApplicationContext());
+            }
+            complicationSlots = new ComplicationSlots(COMPLICATION_IDS, drawables);
+            complicationUpdateBatcher = new ComplicationUpdateBatcher(getApplicationContext(),
+                    complicationSlots, updateTimeHandler, MSG_FLUSH_COMPLICATIONS,
+                    ComplicationUpdateBatcher.DEFAULT_BATCH_WINDOW_MS,
+                    new ComplicationUpdateBatcher.Listener() {
+                        @Override
+                        public void onComplicationsUpdated() {
+                            int occupied = complicationSlots.getOccupiedSlots();
+                            if (occupied != occupiedSlots) {
+                                occupiedSlots = occupied;
+                                invalidatePhraseLayout();
+                            }
+                            frameRenderer.invalidateComplications();
+                            invalidate(WakeupLog.SOURCE_COMPLICATION);
+                        }
+                    });
 
             setActiveComplications(COMPLICATION_IDS);
         }
 
         private void initializePaint() {
             textPaint = new Paint();
-            textPaint.setColor(textColor);
-            textPaint.setTypeface(getResources().getFont(R.font.montserrat));
-            textPaint.setTextSize(textSize);
             textPaint.setAntiAlias(true);
 
             hourPaint = new Paint();
-            hourPaint.setColor(hourColor);
-            hourPaint.setTypeface(getResources().getFont(R.font.montserrat));
-            hourPaint.setTextSize(textSize);
             hourPaint.setAntiAlias(true);
 
             miscPaint = new Paint();
-            miscPaint.setColor(miscColor);
-            miscPaint.setTypeface(getResources().getFont(R.font.baloo));
-            miscPaint.setTextSize(textSize/2);
             miscPaint.setAntiAlias(true);
         }
 
+        private void updateStyle(StyleSettings newStyle) {
+            int changes = style.diff(newStyle);
+            style = newStyle;
+            if (changes != 0) {
+                applyStyle(changes);
+                invalidate(WakeupLog.SOURCE_STYLE);
+            }
+        }
+
+        /**
+         * Rebuilds the parts of the paints and caches that depend on the changed settings.
+         *
+         * @param changes StyleSettings.CHANGED_* flags
+         */
+        private void applyStyle(int changes) {
+            if ((changes & StyleSettings.CHANGED_TEXT_COLOR) != 0) {
+                textPaint.setColor(style.textColor);
+                frameRenderer.invalidatePhrase();
+            }
+            if ((changes & StyleSettings.CHANGED_HOUR_COLOR) != 0) {
+                hourPaint.setColor(style.hourColor);
+                frameRenderer.invalidatePhrase();
+            }
+            if ((changes & StyleSettings.CHANGED_MISC_COLOR) != 0) {
+                miscPaint.setColor(style.miscColor);
+                frameRenderer.invalidateStatus();
+            }
+            textSize = style.textSize;
+            frameRenderer.setTextSize(textSize);
+            if ((changes & (StyleSettings.CHANGED_MISC_FONT | StyleSettings.CHANGED_TEXT_SIZE)) != 0) {
+                miscPaint.setTypeface(sharedResources.getTypeface(style.miscFont));
+                miscPaint.setTextSize(textSize/2);
+                frameRenderer.invalidateStatus();
+            }
+            if ((changes & (StyleSettings.CHANGED_PHRASE_FONT | StyleSettings.CHANGED_TEXT_SIZE)) != 0) {
+                Typeface typeface = sharedResources.getTypeface(style.phraseFont);
+                textPaint.setTypeface(typeface);
+                hourPaint.setTypeface(typeface);
+                ambientRenderer.configure(typeface, isLowBitAmbient, isBurnInProtecrion);
+                scheduleAtlasBuild();
+                invalidatePhraseLayout();
+            }
+        }
+
+        /**
+         * Drops all measured text positions. Must be called whenever the surface size changes.
+         */
+        private void invalidateTextLayout() {
+            invalidatePhraseLayout();
+            frameRenderer.invalidateStatus();
+            frameRenderer.invalidateAll();
+        }
+
+        /**
+         * Refits the phrases and drops the date overlay positions after the phrase paints or the
+         * slots in use changed.
+         */
+        private void invalidatePhraseLayout() {
+            float scale = (float) textSize / StyleSettings.DEFAULT_TEXT_SIZE;
+            if (textLayoutCache.configure(textPaint.getTypeface(),
+                    width * FrameRenderer.MIN_PHRASE_TEXT_SCALE * scale,
+                    width * FrameRenderer.MAX_PHRASE_TEXT_SCALE * scale, width, height,
+                    getResources().getConfiguration().isScreenRound(),
+                    complicationSlots.getBounds(occupiedSlots))) {
+                ambientRenderer.invalidateAtlas();
+                scheduleAtlasBuild();
+            }
+            cancelPhraseTransition();
+            frameRenderer.invalidatePhrase();
+        }
+
         @Override
         public void onDestroy() {
             updateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            updateTimeHandler.removeMessages(MSG_ANIMATE_PHRASE);
+            updateTimeHandler.removeMessages(MSG_BUILD_ATLAS);
+            unregisterReceiver();
+            dateOverlay.hide();
+            complicationUpdateBatcher.release();
+            frameRenderer.release();
+            ambientRenderer.release();
+            stylePreferences.unregisterOnSharedPreferenceChangeListener(styleListener);
+            sharedResources.removeListener(typefaceListener);
+            SharedResources.release();
+            engines.remove(this);
             super.onDestroy();
         }
 
@@ -227,43 +525,42 @@ public class MyWatchFace extends CanvasWatchFaceService {
             super.onPropertiesChanged(properties);
             isLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
             isBurnInProtecrion = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+
+            complicationSlots.setAmbientProperties(isLowBitAmbient, isBurnInProtecrion);
+            frameRenderer.invalidateComplications();
+            ambientRenderer.configure(textPaint.getTypeface(), isLowBitAmbient, isBurnInProtecrion);
+            scheduleAtlasBuild();
         }
 
         @Override
         public void onComplicationDataUpdate(int watchFaceComplicationId, ComplicationData data) {
-            activeComplicationDataSparseArray.put(watchFaceComplicationId, data);
-
-            ComplicationDrawable complicationDrawable =
-                    complicationDrawableSparseArray.get(watchFaceComplicationId);
-            complicationDrawable.setComplicationData(data);
-
-            invalidate();
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_COMPLICATION);
+            complicationUpdateBatcher.onComplicationDataUpdate(watchFaceComplicationId, data,
+                    System.currentTimeMillis());
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            invalidate();
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_TIME_TICK);
+            invalidate(WakeupLog.SOURCE_TIME_TICK);
+            wakeupLog.flushIfDue();
         }
 
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_MODE);
             isAmbient = inAmbientMode;
-            updateTimer();
-            ComplicationDrawable complicationDrawable;
-
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
-                complicationDrawable = complicationDrawableSparseArray.get(COMPLICATION_IDS[i]);
-                complicationDrawable.setInAmbientMode(isAmbient);
+            if (isAmbient) {
+                /* In case the scheduled build did not run yet, so the first frame has the atlas. */
+                buildAtlas();
+                dateOverlay.hide();
+                cancelPhraseTransition();
             }
-        }
-
-
-        @Override
-        public void onInterruptionFilterChanged(int interruptionFilter) {
-            super.onInterruptionFilterChanged(interruptionFilter);
-            boolean inMuteMode = (interruptionFilter == WatchFaceService.INTERRUPTION_FILTER_NONE);
+            updateTimer();
+            complicationSlots.setInAmbientMode(isAmbient);
+            frameRenderer.setAmbient(isAmbient);
         }
 
         @Override
@@ -273,11 +570,31 @@ public class MyWatchFace extends CanvasWatchFaceService {
             centerY = height / 2f;
             this.width = width;
             this.height = height;
+            ambientRenderer.setShiftStep(Math.max(1, Math.round(width * AmbientRenderer.SHIFT_STEP_SCALE)));
 
             int complicationSize = width / 4;
 
             Rect bounds = new Rect((int)(centerX - complicationSize/2), height - complicationSize, (int)(centerX + complicationSize/2), height-15);
-            complicationDrawableSparseArray.get(COMPLICATION_ID).setBounds(bounds);
+            complicationSlots.setBounds(BOTTOM_COMPLICATION_ID, bounds);
+
+            int ringComplicationSize = width / 6;
+            float ringRadius = width * 0.37f;
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                if (COMPLICATION_IDS[i] == BOTTOM_COMPLICATION_ID) {
+                    continue;
+                }
+                double angle = Math.toRadians(COMPLICATION_ANGLES[i]);
+                int left = (int) (centerX + ringRadius * Math.cos(angle)) - ringComplicationSize/2;
+                int top = (int) (centerY + ringRadius * Math.sin(angle)) - ringComplicationSize/2;
+                complicationSlots.setBounds(COMPLICATION_IDS[i],
+                        new Rect(left, top, left + ringComplicationSize, top + ringComplicationSize));
+            }
+            complicationSlots.buildHitIndex(width, height);
+            complicationUpdateBatcher.onSlotBoundsChanged();
+
+            frameRenderer.setSurfaceSize(width, height);
+            /* The phrase is fitted around the slots, so after their bounds are set. */
+            invalidateTextLayout();
         }
 
         /**
@@ -286,64 +603,27 @@ public class MyWatchFace extends CanvasWatchFaceService {
          */
         @Override
         public void onTapCommand(int tapType, int x, int y, long eventTime) {
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_TAP);
             switch (tapType) {
                 case TAP_TYPE_TAP:
-                    int tappedComplicationId = getTappedComplicationId(x, y);
+                    int tappedComplicationId = complicationSlots.findTappedSlot(x, y, System.currentTimeMillis());
                     if (tappedComplicationId != -1) {
                         onComplicationTap(tappedComplicationId);
                         break;
                     }
 
-                    showDate = true;
-                    new Timer().schedule(new TimerTask() {
-                        @Override
-                        public void run() {
-                            showDate = false;
-                        }
-                    }, 3000);
-                    break;
-            }
-            invalidate();
-        }
-
-        private int getTappedComplicationId(int x, int y) {
-
-            int complicationId;
-            ComplicationData complicationData;
-            ComplicationDrawable complicationDrawable;
-
-            long currentTimeMillis = System.currentTimeMillis();
-
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
-                complicationId = COMPLICATION_IDS[i];
-                complicationData = activeComplicationDataSparseArray.get(complicationId);
-
-                if ((complicationData != null)
-                        && (complicationData.isActive(currentTimeMillis))
-                        && (complicationData.getType() != ComplicationData.TYPE_NOT_CONFIGURED)
-                        && (complicationData.getType() != ComplicationData.TYPE_EMPTY)) {
-
-                    complicationDrawable = complicationDrawableSparseArray.get(complicationId);
-                    Rect complicationBoundingRect = complicationDrawable.getBounds();
-
-                    if (complicationBoundingRect.width() > 0) {
-                        if (complicationBoundingRect.contains(x, y)) {
-                            return complicationId;
-                        }
-                    } else {
-                        Log.e("WATCHFACE", "Not a recognized complication id.");
+                    if (dateOverlay.onTap(eventTime)) {
+                        invalidate(WakeupLog.SOURCE_TAP);
                     }
-                }
+                    break;
             }
-            return -1;
         }
 
         // Fires PendingIntent associated with complication (if it has one).
         private void onComplicationTap(int complicationId) {
             Log.d("WATCHFACE", "onComplicationTap()");
 
-            ComplicationData complicationData =
-                    activeComplicationDataSparseArray.get(complicationId);
+            ComplicationData complicationData = complicationSlots.getData(complicationId);
 
             if (complicationData != null) {
 
@@ -374,136 +654,26 @@ public class MyWatchFace extends CanvasWatchFaceService {
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
-            long now = System.currentTimeMillis();
-            calendar.setTimeInMillis(now);
-            canvas.drawColor(Color.BLACK);
-            if(showDate)
-                drawDate(canvas);
-            else
-                drawWatchFace(canvas);
-            drawMisc(canvas);
-            drawComplications(canvas, now);
-        }
-
-        private void drawComplications(Canvas canvas, long currentTimeMillis) {
-            int complicationId;
-            ComplicationDrawable complicationDrawable;
-
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
-                complicationId = COMPLICATION_IDS[i];
-                complicationDrawable = complicationDrawableSparseArray.get(complicationId);
-
-                complicationDrawable.draw(canvas, currentTimeMillis);
-            }
-        }
-
-        private void drawDate(Canvas canvas) {
-            Date date = calendar.getTime();
-            String dateString = new SimpleDateFormat("dd.MM.yyyy").format(date);
-            String weekday = new SimpleDateFormat("EEEE", Locale.GERMAN).format(date);
-            float width = textPaint.measureText(weekday);
-            canvas.drawText(weekday, centerX - width/2, centerY - textSize, hourPaint);
-            width = textPaint.measureText(dateString);
-            canvas.drawText(dateString, centerX - width/2, centerY +textSize, textPaint);
-        }
-
-        private void drawMisc(Canvas canvas) {
-            Date time = calendar.getTime();
-            String timeString = new SimpleDateFormat("HH:mm").format(time);
-            String text = timeString + "         " + String.valueOf(battery) + "%";
-            float textWidth = miscPaint.measureText(text);
-            canvas.drawText(text, centerX - textWidth/2, textSize + 10, miscPaint);
-        }
-
-        private String[] getTimeString(Calendar calendar) {
-            int hour = calendar.get(Calendar.HOUR);
-            int minute = calendar.get(Calendar.MINUTE);
-
-            if(minute >= 3 && minute <=6 )
-                return new String[] {"fünf", "nach", getHourString(hour)};
-            if(minute >= 7 && minute <= 12)
-                return new String[] {"zehn", "nach", getHourString(hour)};
-            if(minute >= 13 && minute <= 17)
-                return new String[] {"viertel", "nach", getHourString(hour)};
-            if(minute >= 18 && minute <= 22)
-                return new String[] {"zwanzig", "nach", getHourString(hour)};
-            if(minute >= 23 && minute <= 27)
-                return new String[] {"kurz", "vor", "halb", getHourString(hour +1)};
-            if(minute >= 28 && minute <= 32)
-                return new String[] {"halb", getHourString(hour +1)};
-            if(minute >= 33 && minute <= 37)
-                return new String[] {"kurz" ,"nach", "halb", getHourString(hour +1)};
-            if(minute >= 38 && minute <= 42)
-                return new String[] {"zwanzig", "vor", getHourString(hour +1)};
-            if(minute >= 43 && minute <= 47)
-                return new String[] {"viertel", "vor", getHourString(hour +1)};
-            if(minute >= 48 && minute <= 52)
-                return new String[] {"zehn", "vor", getHourString(hour +1)};
-            if(minute >= 53 && minute <= 57)
-                return new String[] {"fünf", "vor", getHourString(hour +1)};
-
-            return new String[] {getHourString(hour), "uhr"};
-        }
-
-        private String getHourString(int hour) {
-                int newHour = hour > 12 ? hour-12 : hour;
-                return hourNames[newHour];
-        }
-
-
-        private void drawWatchFace(Canvas canvas) {
-            String[] textArray = getTimeString(calendar);
-            float width;
-            float padding;
-            String text;
-            switch (textArray.length)
-            {
-                case 2:
-                    text = textArray[0] + " " + textArray[1];
-                    width = textPaint.measureText(text);
-                    padding = textPaint.measureText(textArray[0]);
-                    if(textArray[1].equals("uhr"))
-                    {
-                        canvas.drawText(textArray[0], centerX - width/2, centerY + textSize/2, hourPaint);
-                        canvas.drawText(" " + textArray[1], (centerX - width/2) + padding, centerY + textSize/2, textPaint);
-                    }
-                    else {
-                        canvas.drawText(textArray[0], centerX - width/2, centerY + textSize/2, textPaint);
-                        canvas.drawText(" " + textArray[1], (centerX - width/2) + padding, centerY + textSize/2, hourPaint);
-                    }
-                    break;
-                case 3:
-                    text = textArray[0] + " " + textArray[1];
-                    width = textPaint.measureText(text);
-                    canvas.drawText(text, centerX - width/2, centerY - textSize/2, textPaint);
-                    text = textArray[2];
-                    width = textPaint.measureText(text);
-                    canvas.drawText(text, centerX - width/2, centerY + textSize, hourPaint);
-                    break;
-                case 4:
-                    text = textArray[0] + " " + textArray[1];
-                    width = textPaint.measureText(text);
-                    canvas.drawText(text, centerX - width/2, centerY - textSize/2, textPaint);
-                    text = textArray[2] + " " + textArray[3];
-                    width = textPaint.measureText(text);
-                    padding = textPaint.measureText(textArray[2]);
-                    canvas.drawText(textArray[2], centerX - width/2, centerY + textSize, textPaint);
-                    canvas.drawText(" " + textArray[3], (centerX - width/2) + padding, centerY + textSize, hourPaint);
-                    break;
-            }
+            frameRenderer.draw(canvas, dateOverlay.isVisible(), batteryMonitor.getPercent(),
+                    SystemClock.uptimeMillis());
         }
 
         @Override
         public void onVisibilityChanged(boolean visible) {
             super.onVisibilityChanged(visible);
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_MODE);
 
             if (visible) {
                 registerReceiver();
                 /* Update time zone in case it changed while we weren"t visible. */
-                calendar.setTimeZone(TimeZone.getDefault());
-                invalidate();
+                wallClock.setZone(ZoneId.systemDefault());
+                updateLocale(WakeupLog.SOURCE_MODE);
+                invalidate(WakeupLog.SOURCE_MODE);
             } else {
                 unregisterReceiver();
+                dateOverlay.hide();
+                cancelPhraseTransition();
+                wakeupLog.flush();
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
@@ -511,27 +681,24 @@ public class MyWatchFace extends CanvasWatchFaceService {
         }
 
         private void registerReceiver() {
+            batteryMonitor.register();
             if (registeredTimeZoneReceiver) {
                 return;
             }
             registeredTimeZoneReceiver = true;
             IntentFilter timeZoneFilter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
-            IntentFilter batteryFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+            timeZoneFilter.addAction(Intent.ACTION_TIME_CHANGED);
+            timeZoneFilter.addAction(Intent.ACTION_LOCALE_CHANGED);
             MyWatchFace.this.registerReceiver(timeZoneReceiver, timeZoneFilter);
-            Intent intent = MyWatchFace.this.registerReceiver(batteryReceiver, batteryFilter);
-            int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
-            int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
-            battery = (int)(level * 100 / (float)scale);
         }
 
         private void unregisterReceiver() {
-            if (!registeredTimeZoneReceiver && !registeredBatteryReceiver) {
+            batteryMonitor.unregister();
+            if (!registeredTimeZoneReceiver) {
                 return;
             }
             registeredTimeZoneReceiver = false;
-            registeredBatteryReceiver = false;
             MyWatchFace.this.unregisterReceiver(timeZoneReceiver);
-            MyWatchFace.this.unregisterReceiver(batteryReceiver);
         }
 
         /**
@@ -553,16 +720,98 @@ public class MyWatchFace extends CanvasWatchFaceService {
         }
 
         /**
-         * Handle updating the time periodically in interactive mode.
+         * Handle updating the time in interactive mode. Sleeps until the next instant the visible
+         * content changes; battery, complication and tap events invalidate on their own.
          */
         private void handleUpdateTimeMessage() {
-            invalidate();
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_TIMER);
+            invalidate(WakeupLog.SOURCE_TIMER);
+            wakeupLog.flushIfDue();
             if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
-                updateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+                long timeMs = wallClock.update();
+                long nextChangeMs = UpdateScheduler.getNextChangeMillis(timeMs);
+                updateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, nextChangeMs - timeMs);
+            }
+        }
+
+        /**
+         * Schedules the frames of a phrase transition that started at the given uptime, every
+         * {@link PhraseTransition#FRAME_INTERVAL_MS} until it ended.
+         */
+        private void schedulePhraseTransition(long uptimeMillis) {
+            nextAnimationFrameMillis = uptimeMillis + PhraseTransition.FRAME_INTERVAL_MS;
+            updateTimeHandler.removeMessages(MSG_ANIMATE_PHRASE);
+            updateTimeHandler.sendEmptyMessageAtTime(MSG_ANIMATE_PHRASE, nextAnimationFrameMillis);
+        }
+
+        private void cancelPhraseTransition() {
+            frameRenderer.cancelPhraseTransition();
+            updateTimeHandler.removeMessages(MSG_ANIMATE_PHRASE);
+        }
+
+        /**
+         * Requests the next animation frame. Frames are paced on a fixed grid from the start of
+         * the transition, skipping frames that are already late instead of queueing them, and
+         * stop once a frame found the transition ended; the regular timer is not affected.
+         */
+        private void handleAnimatePhraseMessage() {
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_ANIMATION);
+            if (!frameRenderer.isPhraseTransitionRunning()) {
+                return;
+            }
+            invalidate(WakeupLog.SOURCE_ANIMATION);
+            long now = SystemClock.uptimeMillis();
+            do {
+                nextAnimationFrameMillis += PhraseTransition.FRAME_INTERVAL_MS;
+            } while (nextAnimationFrameMillis <= now);
+            updateTimeHandler.sendEmptyMessageAtTime(MSG_ANIMATE_PHRASE, nextAnimationFrameMillis);
+        }
+
+        /**
+         * Rebuilds the ambient word atlas once after a burst of input changes, outside of any
+         * frame.
+         */
+        private void scheduleAtlasBuild() {
+            if (!updateTimeHandler.hasMessages(MSG_BUILD_ATLAS)) {
+                updateTimeHandler.sendEmptyMessage(MSG_BUILD_ATLAS);
             }
         }
+
+        private void handleBuildAtlasMessage() {
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_STYLE);
+            buildAtlas();
+        }
+
+        private void buildAtlas() {
+            /* The layouts are only meaningful once the surface size is known. */
+            if (width > 0) {
+                ambientRenderer.buildAtlas();
+            }
+        }
+
+        /**
+         * Hides the date overlay once its timeout expired.
+         */
+        private void handleHideDateMessage() {
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_TAP);
+            if (dateOverlay.onTimeout()) {
+                invalidate(WakeupLog.SOURCE_TAP);
+            }
+        }
+
+        private void handleBatteryChangedMessage() {
+            wakeupLog.recordWakeup(WakeupLog.SOURCE_BATTERY);
+            batteryMonitor.publish();
+        }
+
+        /**
+         * Invalidates and counts the invalidation for its source.
+         *
+         * @param source one of the WakeupLog.SOURCE_* constants
+         */
+        private void invalidate(int source) {
+            wakeupLog.recordInvalidation(source);
+            invalidate();
+        }
     }
 }
\ No newline at end of file
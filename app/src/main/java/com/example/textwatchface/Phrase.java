@@ -0,0 +1,115 @@
+package com.example.textwatchface;
+
+/**
+ * One immutable time phrase, e.g. "kurz vor halb drei", already split into the words, lines and
+ * draw runs the watch face renders. Instances are shared by every minute that shows the same
+ * text, so identity comparison is enough to detect a phrase change.
+ */
+final class Phrase {
+
+    /* All words on a single line, e.g. "drei uhr" or "halb vier". */
+    static final int LAYOUT_ONE_LINE = 0;
+    /* First two words on top, the hour alone below, e.g. "fünf nach" / "drei". */
+    static final int LAYOUT_HOUR_BELOW = 1;
+    /* Two words per line, e.g. "kurz vor" / "halb drei". */
+    static final int LAYOUT_TWO_PAIRS = 2;
+
+    /** Index of this phrase in its {@link PhraseTable}. */
+    final int id;
+    final String[] words;
+    final int layout;
+    /** Index into {@link #words} of the word drawn with the hour paint. */
+    final int hourWord;
+
+    /** Line index of every word. */
+    final int[] wordLine;
+    /** Full text of every line, used to center the line. */
+    final String[] lines;
+    /**
+     * Text of every draw run. A run is a span of words on one line drawn with a single paint;
+     * every run but the first on a line carries its leading space.
+     */
+    final String[] runs;
+    /** Line index of every run. */
+    final int[] runLine;
+    /** Index into {@link #runs} of the run drawn with the hour paint. */
+    final int hourRun;
+
+    Phrase(int id, String[] words, int hourWord) {
+        if (words.length < 1 || words.length > 4) {
+            throw new IllegalArgumentException("Unsupported word count: " + words.length);
+        }
+        if (hourWord < 0 || hourWord >= words.length) {
+            throw new IllegalArgumentException("Hour word out of range: " + hourWord);
+        }
+        this.id = id;
+        this.words = words.clone();
+        this.hourWord = hourWord;
+
+        switch (words.length) {
+            case 3:
+                layout = LAYOUT_HOUR_BELOW;
+                break;
+            case 4:
+                layout = LAYOUT_TWO_PAIRS;
+                break;
+            default:
+                layout = LAYOUT_ONE_LINE;
+                break;
+        }
+
+        wordLine = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            wordLine[i] = layout == LAYOUT_ONE_LINE || i < 2 ? 0 : 1;
+        }
+        int lineCount = wordLine[words.length - 1] + 1;
+
+        lines = new String[lineCount];
+        for (int i = 0; i < words.length; i++) {
+            int line = wordLine[i];
+            lines[line] = lines[line] == null ? words[i] : lines[line] + " " + words[i];
+        }
+
+        // A new run starts at every line start, at the hour word and right after it.
+        String[] runText = new String[words.length];
+        int[] runLineOf = new int[words.length];
+        int runCount = 0;
+        int hour = -1;
+        for (int i = 0; i < words.length; i++) {
+            boolean lineStart = i == 0 || wordLine[i] != wordLine[i - 1];
+            boolean newRun = lineStart || i == hourWord || i - 1 == hourWord;
+            String text = lineStart ? words[i] : " " + words[i];
+            if (newRun) {
+                runText[runCount] = text;
+                runLineOf[runCount] = wordLine[i];
+                runCount++;
+            } else {
+                runText[runCount - 1] += text;
+            }
+            if (i == hourWord) {
+                hour = runCount - 1;
+            }
+        }
+        runs = new String[runCount];
+        runLine = new int[runCount];
+        System.arraycopy(runText, 0, runs, 0, runCount);
+        System.arraycopy(runLineOf, 0, runLine, 0, runCount);
+        hourRun = hour;
+    }
+
+    int lineCount() {
+        return lines.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (String line : lines) {
+            if (builder.length() > 0) {
+                builder.append(" / ");
+            }
+            builder.append(line);
+        }
+        return builder.toString();
+    }
+}
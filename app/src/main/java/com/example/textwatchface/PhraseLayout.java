@@ -0,0 +1,29 @@
+package com.example.textwatchface;
+
+/**
+ * Draw coordinates and text size of every run and word of a {@link Phrase} for one surface size and text
+ * style.
+ */
+final class PhraseLayout {
+
+    final Phrase phrase;
+    final float textSize;
+    final float[] runX;
+    /** Baseline of every run. */
+    final float[] runY;
+    final float[] runWidth;
+    /** Pen position of every word, where it starts within its run. */
+    final float[] wordX;
+    /** Baseline of every word. */
+    final float[] wordY;
+
+    PhraseLayout(Phrase phrase, float textSize) {
+        this.phrase = phrase;
+        this.textSize = textSize;
+        runX = new float[phrase.runs.length];
+        runY = new float[phrase.runs.length];
+        runWidth = new float[phrase.runs.length];
+        wordX = new float[phrase.words.length];
+        wordY = new float[phrase.words.length];
+    }
+}
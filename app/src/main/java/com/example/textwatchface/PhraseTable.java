@@ -0,0 +1,70 @@
+package com.example.textwatchface;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup table with one {@link Phrase} per minute of a 12 hour dial. The table is built
+ * once from a {@link TimePhraseProvider}, so resolving the phrase for a frame is a single array
+ * access no matter how the language words the time.
+ */
+final class PhraseTable {
+
+    static final int MINUTES_PER_HOUR = 60;
+    static final int HOURS = 12;
+    static final int SLOTS = HOURS * MINUTES_PER_HOUR;
+
+    private final Phrase[] slots;
+    private final Phrase[] phrases;
+
+    private PhraseTable(Phrase[] slots, Phrase[] phrases) {
+        this.slots = slots;
+        this.phrases = phrases;
+    }
+
+    /**
+     * Compiles the wording of a provider into a table.
+     */
+    static PhraseTable compile(TimePhraseProvider provider) {
+        Phrase[] slots = new Phrase[SLOTS];
+        List<Phrase> phrases = new ArrayList<>();
+        Map<String, Phrase> distinct = new HashMap<>();
+
+        for (int hour = 0; hour < HOURS; hour++) {
+            for (int minute = 0; minute < MINUTES_PER_HOUR; minute++) {
+                String[] words = provider.getWords(hour, minute);
+                int hourWord = provider.getHourWord(hour, minute);
+
+                String key = String.join(" ", words) + "#" + hourWord;
+                Phrase phrase = distinct.get(key);
+                if (phrase == null) {
+                    phrase = new Phrase(phrases.size(), words, hourWord);
+                    phrases.add(phrase);
+                    distinct.put(key, phrase);
+                }
+                slots[hour * MINUTES_PER_HOUR + minute] = phrase;
+            }
+        }
+        return new PhraseTable(slots, phrases.toArray(new Phrase[0]));
+    }
+
+    /**
+     * Returns the phrase for the given hour (any value, wrapped to the 12 hour dial) and minute.
+     */
+    Phrase get(int hour, int minute) {
+        return slots[(hour % HOURS) * MINUTES_PER_HOUR + minute];
+    }
+
+    /**
+     * Number of distinct phrases in the table.
+     */
+    int size() {
+        return phrases.length;
+    }
+
+    Phrase phraseAt(int id) {
+        return phrases[id];
+    }
+}
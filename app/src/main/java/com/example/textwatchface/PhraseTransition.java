@@ -0,0 +1,161 @@
+package com.example.textwatchface;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+/**
+ * Animates a phrase change word by word. Words both phrases share, e.g. "nach drei" in
+ * "fünf nach drei" to "zehn nach drei", glide from their old to their new position and size, the
+ * words that are gone slide up and fade out while the new ones slide up into place and fade in.
+ * Word positions come from the cached layouts and are matched in {@link #start}, so neither the
+ * phrase boundary nor an animated frame allocates; a frame only interpolates and draws.
+ */
+final class PhraseTransition {
+
+    static final long DURATION_MS = 450;
+    /* 30 fps, the target rate the engine schedules animation frames at. */
+    static final long FRAME_INTERVAL_MS = 1000 / 30;
+
+    private static final int MOVE = 0;
+    private static final int OUT = 1;
+    private static final int IN = 2;
+    /* Fraction of the text size words slide by while fading. */
+    private static final float SLIDE = 0.4f;
+    /* Words of both phrases, at most four each. */
+    private static final int MAX_WORDS = 8;
+
+    private final String[] words = new String[MAX_WORDS];
+    private final int[] kinds = new int[MAX_WORDS];
+    private final boolean[] hour = new boolean[MAX_WORDS];
+    private final float[] fromX = new float[MAX_WORDS];
+    private final float[] fromY = new float[MAX_WORDS];
+    private final float[] fromSize = new float[MAX_WORDS];
+    private final float[] toX = new float[MAX_WORDS];
+    private final float[] toY = new float[MAX_WORDS];
+    private final float[] toSize = new float[MAX_WORDS];
+    private int count;
+    /* Old words that were matched to a new word, scratch space of start. */
+    private final boolean[] oldMatched = new boolean[4];
+
+    private boolean running;
+    private long startUptimeMillis;
+    /* Eased progress of the current frame, 0 to 1. */
+    private float progress;
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Matches the words of both phrases and records where every word is drawn at either end.
+     */
+    void start(PhraseLayout from, PhraseLayout to, long uptimeMillis) {
+        Phrase oldPhrase = from.phrase;
+        Phrase newPhrase = to.phrase;
+        float[] oldX = from.wordX;
+        float[] oldY = from.wordY;
+        float[] wordX = to.wordX;
+        float[] wordY = to.wordY;
+
+        count = 0;
+        for (int i = 0; i < oldMatched.length; i++) {
+            oldMatched[i] = false;
+        }
+        /* Words keep their order, so every new word is matched to the next equal old word. */
+        int next = 0;
+        for (int i = 0; i < newPhrase.words.length; i++) {
+            boolean isHour = i == newPhrase.hourWord;
+            int match = -1;
+            for (int j = next; j < oldPhrase.words.length; j++) {
+                if (oldPhrase.words[j].equals(newPhrase.words[i]) && (j == oldPhrase.hourWord) == isHour) {
+                    match = j;
+                    break;
+                }
+            }
+            if (match >= 0) {
+                oldMatched[match] = true;
+                next = match + 1;
+                add(MOVE, newPhrase.words[i], isHour, oldX[match], oldY[match], from.textSize,
+                        wordX[i], wordY[i], to.textSize);
+            } else {
+                add(IN, newPhrase.words[i], isHour, wordX[i], wordY[i], to.textSize,
+                        wordX[i], wordY[i], to.textSize);
+            }
+        }
+        for (int j = 0; j < oldPhrase.words.length; j++) {
+            if (!oldMatched[j]) {
+                add(OUT, oldPhrase.words[j], j == oldPhrase.hourWord, oldX[j], oldY[j], from.textSize,
+                        oldX[j], oldY[j], from.textSize);
+            }
+        }
+        startUptimeMillis = uptimeMillis;
+        progress = 0;
+        running = true;
+    }
+
+    /**
+     * Advances the transition to the time of the frame about to be drawn.
+     *
+     * @return whether the transition still runs; after it ended the phrase is drawn as usual
+     */
+    boolean update(long uptimeMillis) {
+        if (!running) {
+            return false;
+        }
+        float t = (float) (uptimeMillis - startUptimeMillis) / DURATION_MS;
+        if (t >= 1) {
+            running = false;
+            return false;
+        }
+        t = Math.max(t, 0);
+        /* Decelerate: fast at the phrase boundary, settling into place. */
+        progress = 1 - (1 - t) * (1 - t);
+        return true;
+    }
+
+    void cancel() {
+        running = false;
+    }
+
+    /**
+     * Draws the frame at the progress of the last {@link #update}. Changes the text size of both
+     * paints, their alpha is restored.
+     */
+    void draw(Canvas canvas, Paint textPaint, Paint hourPaint) {
+        int textAlpha = textPaint.getAlpha();
+        int hourAlpha = hourPaint.getAlpha();
+        for (int i = 0; i < count; i++) {
+            Paint paint = hour[i] ? hourPaint : textPaint;
+            int alpha = hour[i] ? hourAlpha : textAlpha;
+            float x = fromX[i] + (toX[i] - fromX[i]) * progress;
+            float y = fromY[i] + (toY[i] - fromY[i]) * progress;
+            float size = fromSize[i] + (toSize[i] - fromSize[i]) * progress;
+            if (kinds[i] == OUT) {
+                y -= size * SLIDE * progress;
+                alpha = (int) (alpha * (1 - progress));
+            } else if (kinds[i] == IN) {
+                y += size * SLIDE * (1 - progress);
+                alpha = (int) (alpha * progress);
+            }
+            paint.setTextSize(size);
+            paint.setAlpha(alpha);
+            canvas.drawText(words[i], x, y, paint);
+        }
+        textPaint.setAlpha(textAlpha);
+        hourPaint.setAlpha(hourAlpha);
+    }
+
+    private void add(int kind, String word, boolean isHour, float x0, float y0, float size0,
+                     float x1, float y1, float size1) {
+        kinds[count] = kind;
+        words[count] = word;
+        hour[count] = isHour;
+        fromX[count] = x0;
+        fromY[count] = y0;
+        fromSize[count] = size0;
+        toX[count] = x1;
+        toY[count] = y1;
+        toSize[count] = size1;
+        count++;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.textwatchface;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Last known provider icon of every complication slot, kept as a PNG in the cache directory so
+ * the config screen can show the slots before the provider info is retrieved. A slot without a
+ * cached icon had no provider the last time it was seen. Next to every PNG the provider and the
+ * icon it was rendered from are stored, so seeing the same provider again costs no rendering or
+ * writing. All methods do disk I/O and must be called off the main thread.
+ */
+final class ProviderIconCache {
+
+    private static final String DIRECTORY = "provider_icons";
+
+    private final Context context;
+    private final File directory;
+
+    ProviderIconCache(Context context) {
+        this.context = context.getApplicationContext();
+        directory = new File(context.getCacheDir(), DIRECTORY);
+    }
+
+    /**
+     * Returns the cached icon of a slot, or null if the slot had no provider or was never cached.
+     */
+    Bitmap read(int complicationId) {
+        File file = getFile(complicationId);
+        if (!file.isFile()) {
+            return null;
+        }
+        return BitmapFactory.decodeFile(file.getPath());
+    }
+
+    /**
+     * Renders the provider icon and stores it for the slot, unless the same icon of the same
+     * provider is already stored, or forgets the slot if the icon is null.
+     *
+     * @param provider name identifying the provider the icon belongs to
+     */
+    void write(int complicationId, String provider, Icon icon) {
+        File file = getFile(complicationId);
+        File keyFile = getKeyFile(complicationId);
+        if (icon == null) {
+            delete(file);
+            delete(keyFile);
+            return;
+        }
+        String key = getKey(provider, icon);
+        if (key != null && file.isFile() && key.equals(readKey(keyFile))) {
+            return;
+        }
+        /* The key must never describe a PNG it was not written for. */
+        delete(keyFile);
+        Drawable drawable = icon.loadDrawable(context);
+        if (drawable == null || drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0) {
+            return;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(),
+                Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        drawable.draw(new Canvas(bitmap));
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w("WATCHFACE", "Could not create " + directory);
+            bitmap.recycle();
+            return;
+        }
+        /* Write to a temporary file first so a reader never sees half an icon. */
+        File temporary = new File(directory, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            Log.w("WATCHFACE", "Could not cache provider icon: " + e);
+            return;
+        } finally {
+            bitmap.recycle();
+        }
+        if (!temporary.renameTo(file)) {
+            Log.w("WATCHFACE", "Could not move cached provider icon to " + file);
+            return;
+        }
+        if (key != null) {
+            try (FileOutputStream out = new FileOutputStream(keyFile)) {
+                out.write(key.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.w("WATCHFACE", "Could not store provider icon key: " + e);
+            }
+        }
+    }
+
+    private File getFile(int complicationId) {
+        return new File(directory, "complication_" + complicationId + ".png");
+    }
+
+    private File getKeyFile(int complicationId) {
+        return new File(directory, "complication_" + complicationId + ".key");
+    }
+
+    /*
+     * Resource and URI icons are identified by what they point to. Bitmap icons can't be
+     * identified without rendering them and are written every time.
+     */
+    private static String getKey(String provider, Icon icon) {
+        switch (icon.getType()) {
+            case Icon.TYPE_RESOURCE:
+                return provider + "\nres:" + icon.getResPackage() + ':' + icon.getResId();
+            case Icon.TYPE_URI:
+                return provider + "\nuri:" + icon.getUri();
+            default:
+                return null;
+        }
+    }
+
+    private static String readKey(File keyFile) {
+        if (!keyFile.isFile()) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) keyFile.length()];
+        try (FileInputStream in = new FileInputStream(keyFile)) {
+            int length = 0;
+            while (length < bytes.length) {
+                int read = in.read(bytes, length, bytes.length - length);
+                if (read < 0) {
+                    return null;
+                }
+                length += read;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            Log.w("WATCHFACE", "Could not delete cached provider icon " + file);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.textwatchface;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * {@link TimePhraseProvider} defined by a list of minute ranges, each with the words to show and
+ * which hour they name. The hour is written as {@link #HOUR} in the words of a rule.
+ */
+final class RulePhraseProvider implements TimePhraseProvider {
+
+    /** Placeholder for the hour name in the words of a rule. */
+    static final String HOUR = "%h";
+
+    private final Locale locale;
+    private final String[] hourNames;
+    private final Rule[] rules = new Rule[PhraseTable.MINUTES_PER_HOUR];
+
+    private RulePhraseProvider(Locale locale, String[] hourNames, List<Rule> ruleList) {
+        this.locale = locale;
+        this.hourNames = hourNames;
+        for (Rule rule : ruleList) {
+            for (int minute = rule.fromMinute; minute <= rule.toMinute; minute++) {
+                if (rules[minute] != null) {
+                    throw new IllegalArgumentException("Minute " + minute + " has two rules");
+                }
+                rules[minute] = rule;
+            }
+        }
+        for (int minute = 0; minute < rules.length; minute++) {
+            if (rules[minute] == null) {
+                throw new IllegalArgumentException("Minute " + minute + " has no rule");
+            }
+        }
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    @Override
+    public String[] getWords(int hour, int minute) {
+        Rule rule = rules[minute];
+        String[] words = rule.words.clone();
+        words[rule.hourWord] = hourNames[(hour + rule.hourOffset) % PhraseTable.HOURS];
+        return words;
+    }
+
+    @Override
+    public int getHourWord(int hour, int minute) {
+        return rules[minute].hourWord;
+    }
+
+    private static final class Rule {
+        final int fromMinute;
+        final int toMinute;
+        final int hourOffset;
+        final String[] words;
+        final int hourWord;
+
+        Rule(int fromMinute, int toMinute, int hourOffset, String[] words) {
+            this.fromMinute = fromMinute;
+            this.toMinute = toMinute;
+            this.hourOffset = hourOffset;
+            this.words = words;
+            int hour = -1;
+            for (int i = 0; i < words.length; i++) {
+                if (HOUR.equals(words[i])) {
+                    hour = i;
+                }
+            }
+            if (hour == -1) {
+                throw new IllegalArgumentException("Rule for minute " + fromMinute + " names no hour");
+            }
+            hourWord = hour;
+        }
+    }
+
+    static final class Builder {
+        private final Locale locale;
+        private final String[] hourNames;
+        private final List<Rule> rules = new ArrayList<>();
+
+        /**
+         * @param hourNames names of the hours 0 (twelve) to 11
+         */
+        Builder(Locale locale, String... hourNames) {
+            if (hourNames.length != PhraseTable.HOURS) {
+                throw new IllegalArgumentException("Expected 12 hour names");
+            }
+            this.locale = locale;
+            this.hourNames = hourNames;
+        }
+
+        /**
+         * Adds a rule for the minutes {@code fromMinute} to {@code toMinute}, inclusive.
+         *
+         * @param hourOffset 0 to name the current hour, 1 to name the next one
+         */
+        Builder rule(int fromMinute, int toMinute, int hourOffset, String... words) {
+            rules.add(new Rule(fromMinute, toMinute, hourOffset, words));
+            return this;
+        }
+
+        RulePhraseProvider build() {
+            return new RulePhraseProvider(locale, hourNames, rules);
+        }
+    }
+}
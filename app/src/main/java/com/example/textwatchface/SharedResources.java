@@ -0,0 +1,195 @@
+package com.example.textwatchface;
+
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resources shared by all engines of the process: the watch face, its preview in the picker and
+ * the one in the config activity each run their own engine. Every typeface is loaded once, on a
+ * background thread when it is first asked for, and the compiled phrase tables are kept per
+ * language. A font that fails to load keeps the fallback, its error is kept for the dump and the
+ * next request for it tries again. Everything is released when the last engine gives its
+ * reference back.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+final class SharedResources {
+
+    interface Listener {
+        /**
+         * Called on the main thread once a typeface replaced the default fallback.
+         *
+         * @param font one of the StyleSettings.FONT_* constants
+         */
+        void onTypefaceLoaded(int font);
+    }
+
+    /* Font resources indexed by the StyleSettings.FONT_* constants. */
+    private static final int[] FONT_RESOURCES = {R.font.montserrat, R.font.baloo, R.font.poppins};
+
+    private static SharedResources instance;
+    private static int references;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final Map<Locale, PhraseTable> phraseTables = new HashMap<>();
+
+    private final Context context;
+    private final Typeface[] typefaces = new Typeface[StyleSettings.FONT_COUNT];
+    private final boolean[] loading = new boolean[StyleSettings.FONT_COUNT];
+    /* Error of the last failed load of every font, null if it did not fail. */
+    private final String[] failures = new String[StyleSettings.FONT_COUNT];
+    private boolean released;
+
+    private SharedResources(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns the pool, creating it if no engine holds it. Every call must be paired with
+     * {@link #release()}.
+     */
+    static SharedResources acquire(Context context) {
+        if (instance == null) {
+            instance = new SharedResources(context.getApplicationContext());
+        }
+        references++;
+        return instance;
+    }
+
+    static void release() {
+        if (references == 0) {
+            return;
+        }
+        references--;
+        if (references == 0) {
+            instance.destroy();
+            instance = null;
+        }
+    }
+
+    /**
+     * Returns a typeface, {@link Typeface#DEFAULT} until it is loaded. The first call for a font
+     * starts loading it and listeners are told when it is ready.
+     *
+     * @param font one of the StyleSettings.FONT_* constants
+     */
+    Typeface getTypeface(final int font) {
+        if (typefaces[font] != null) {
+            return typefaces[font];
+        }
+        if (!loading[font]) {
+            loading[font] = true;
+            loader.execute(new Runnable() {
+                @Override
+                public void run() {
+                    final Typeface typeface;
+                    try {
+                        typeface = context.getResources().getFont(FONT_RESOURCES[font]);
+                    } catch (RuntimeException e) {
+                        Log.e("WATCHFACE", "Loading typeface " + font + " failed: " + e);
+                        final String failure = e.toString();
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                onTypefaceFailed(font, failure);
+                            }
+                        });
+                        return;
+                    }
+                    mainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onTypefaceLoaded(font, typeface);
+                        }
+                    });
+                }
+            });
+        }
+        return Typeface.DEFAULT;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the compiled phrase table of the provider's language, compiling it on first use.
+     */
+    PhraseTable getPhraseTable(TimePhraseProvider provider) {
+        PhraseTable table = phraseTables.get(provider.getLocale());
+        if (table == null) {
+            table = PhraseTable.compile(provider);
+            phraseTables.put(provider.getLocale(), table);
+        }
+        return table;
+    }
+
+    /**
+     * Prints the state of every font, so a fallback to the default typeface shows in the dump
+     * of the service and not only in logcat.
+     */
+    void dump(PrintWriter writer) {
+        writer.println("Typefaces:");
+        for (int font = 0; font < typefaces.length; font++) {
+            String state;
+            if (typefaces[font] != null) {
+                state = "loaded";
+            } else if (loading[font]) {
+                state = "loading";
+            } else if (failures[font] != null) {
+                state = "failed, using the default: " + failures[font];
+            } else {
+                state = "not used";
+            }
+            writer.println("  " + font + ": " + state);
+        }
+    }
+
+    private void onTypefaceLoaded(int font, Typeface typeface) {
+        if (released) {
+            return;
+        }
+        loading[font] = false;
+        failures[font] = null;
+        typefaces[font] = typeface;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onTypefaceLoaded(font);
+        }
+    }
+
+    private void onTypefaceFailed(int font, String failure) {
+        if (released) {
+            return;
+        }
+        loading[font] = false;
+        failures[font] = failure;
+    }
+
+    private void destroy() {
+        released = true;
+        loader.shutdownNow();
+        listeners.clear();
+        phraseTables.clear();
+        for (int font = 0; font < typefaces.length; font++) {
+            typefaces[font] = null;
+        }
+    }
+}
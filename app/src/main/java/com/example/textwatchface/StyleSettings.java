@@ -0,0 +1,149 @@
+package com.example.textwatchface;
+
+import android.content.SharedPreferences;
+import android.graphics.Color;
+
+/**
+ * Immutable snapshot of the user's style choices. The whole snapshot is stored as one compact
+ * string under a single preference key, so reading it is one lookup and one parse, and a change
+ * listener only has to watch that key. {@link #diff} tells which parts changed, so the engine
+ * can rebuild just the affected paints and caches.
+ */
+final class StyleSettings {
+
+    static final String PREFERENCES_NAME = "style";
+    static final String KEY = "snapshot";
+
+    static final int FONT_MONTSERRAT = 0;
+    static final int FONT_BALOO = 1;
+    static final int FONT_POPPINS = 2;
+    static final int FONT_COUNT = 3;
+
+    static final int CHANGED_TEXT_COLOR = 1;
+    static final int CHANGED_HOUR_COLOR = 1 << 1;
+    static final int CHANGED_MISC_COLOR = 1 << 2;
+    static final int CHANGED_PHRASE_FONT = 1 << 3;
+    static final int CHANGED_MISC_FONT = 1 << 4;
+    static final int CHANGED_TEXT_SIZE = 1 << 5;
+    static final int CHANGED_ALL = (1 << 6) - 1;
+
+    static final int DEFAULT_TEXT_SIZE = 55;
+    static final int MIN_TEXT_SIZE = 40;
+    static final int MAX_TEXT_SIZE = 70;
+
+    static final StyleSettings DEFAULT = new StyleSettings(Color.WHITE, Color.RED, Color.WHITE,
+            FONT_MONTSERRAT, FONT_BALOO, DEFAULT_TEXT_SIZE);
+
+    /* Bump when the snapshot format changes, older snapshots then read as the defaults. */
+    private static final String VERSION = "1";
+
+    final int textColor;
+    final int hourColor;
+    final int miscColor;
+    final int phraseFont;
+    final int miscFont;
+    /** Size of the status line and date overlay text; also scales the phrase size range. */
+    final int textSize;
+
+    StyleSettings(int textColor, int hourColor, int miscColor, int phraseFont, int miscFont,
+                  int textSize) {
+        if (phraseFont < 0 || phraseFont >= FONT_COUNT || miscFont < 0 || miscFont >= FONT_COUNT) {
+            throw new IllegalArgumentException("Unknown font: " + phraseFont + ", " + miscFont);
+        }
+        if (textSize < MIN_TEXT_SIZE || textSize > MAX_TEXT_SIZE) {
+            throw new IllegalArgumentException("Text size out of range: " + textSize);
+        }
+        this.textColor = textColor;
+        this.hourColor = hourColor;
+        this.miscColor = miscColor;
+        this.phraseFont = phraseFont;
+        this.miscFont = miscFont;
+        this.textSize = textSize;
+    }
+
+    /**
+     * Reads the stored snapshot, the defaults if there is none or it can't be parsed.
+     */
+    static StyleSettings read(SharedPreferences preferences) {
+        String snapshot = preferences.getString(KEY, null);
+        if (snapshot == null) {
+            return DEFAULT;
+        }
+        String[] fields = snapshot.split(",");
+        if (fields.length != 7 || !VERSION.equals(fields[0])) {
+            return DEFAULT;
+        }
+        try {
+            return new StyleSettings(
+                    (int) Long.parseLong(fields[1], 16),
+                    (int) Long.parseLong(fields[2], 16),
+                    (int) Long.parseLong(fields[3], 16),
+                    Integer.parseInt(fields[4]),
+                    Integer.parseInt(fields[5]),
+                    Integer.parseInt(fields[6]));
+        } catch (IllegalArgumentException e) {
+            return DEFAULT;
+        }
+    }
+
+    void write(SharedPreferences preferences) {
+        String snapshot = VERSION
+                + ',' + Integer.toHexString(textColor)
+                + ',' + Integer.toHexString(hourColor)
+                + ',' + Integer.toHexString(miscColor)
+                + ',' + phraseFont
+                + ',' + miscFont
+                + ',' + textSize;
+        preferences.edit().putString(KEY, snapshot).apply();
+    }
+
+    /**
+     * Returns the CHANGED_* flags of every setting that differs between the two snapshots.
+     */
+    int diff(StyleSettings other) {
+        int changes = 0;
+        if (textColor != other.textColor) {
+            changes |= CHANGED_TEXT_COLOR;
+        }
+        if (hourColor != other.hourColor) {
+            changes |= CHANGED_HOUR_COLOR;
+        }
+        if (miscColor != other.miscColor) {
+            changes |= CHANGED_MISC_COLOR;
+        }
+        if (phraseFont != other.phraseFont) {
+            changes |= CHANGED_PHRASE_FONT;
+        }
+        if (miscFont != other.miscFont) {
+            changes |= CHANGED_MISC_FONT;
+        }
+        if (textSize != other.textSize) {
+            changes |= CHANGED_TEXT_SIZE;
+        }
+        return changes;
+    }
+
+    StyleSettings withTextColor(int color) {
+        return new StyleSettings(color, hourColor, miscColor, phraseFont, miscFont, textSize);
+    }
+
+    StyleSettings withHourColor(int color) {
+        return new StyleSettings(textColor, color, miscColor, phraseFont, miscFont, textSize);
+    }
+
+    StyleSettings withMiscColor(int color) {
+        return new StyleSettings(textColor, hourColor, color, phraseFont, miscFont, textSize);
+    }
+
+    StyleSettings withPhraseFont(int font) {
+        return new StyleSettings(textColor, hourColor, miscColor, font, miscFont, textSize);
+    }
+
+    StyleSettings withMiscFont(int font) {
+        return new StyleSettings(textColor, hourColor, miscColor, phraseFont, font, textSize);
+    }
+
+    StyleSettings withTextSize(int size) {
+        return new StyleSettings(textColor, hourColor, miscColor, phraseFont, miscFont, size);
+    }
+}
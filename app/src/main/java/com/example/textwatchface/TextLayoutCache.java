@@ -0,0 +1,121 @@
+package com.example.textwatchface;
+
+import java.util.Arrays;
+
+/**
+ * Caches the {@link PhraseLayout} of every phrase of a {@link PhraseTable}. Every phrase gets the
+ * largest text size within the configured range that fits the surface around the keep-out rects.
+ * A layout is measured the
+ * first time its phrase is drawn and reused until the typeface, size range or surface changes,
+ * so a frame only issues draw calls at precomputed coordinates.
+ */
+final class TextLayoutCache {
+
+    private final TextMeasurer measurer;
+    private final TextSizeFitter fitter;
+    private final PhraseLayout[] layouts;
+    private final float[] textSizes;
+
+    private Object typeface;
+    private float minTextSize;
+    private float maxTextSize;
+    private float width;
+    private float height;
+    private boolean round;
+    private float[] keepOut = TextSizeFitter.NO_KEEP_OUT;
+
+    /**
+     * @param measurer measures text with the typeface passed to {@link #configure}
+     */
+    TextLayoutCache(PhraseTable phraseTable, TextMeasurer measurer) {
+        this.measurer = measurer;
+        fitter = new TextSizeFitter(phraseTable, measurer);
+        layouts = new PhraseLayout[phraseTable.size()];
+        textSizes = new float[phraseTable.size()];
+    }
+
+    /**
+     * Sets the inputs the layouts depend on and drops the cached layouts if any of them changed.
+     *
+     * @param typeface identity of the font the measurer uses, compared by reference
+     * @param keepOut rects the phrase must not cover, see {@link TextSizeFitter#fit}
+     * @return whether the cache was invalidated
+     */
+    boolean configure(Object typeface, float minTextSize, float maxTextSize,
+                      float width, float height, boolean round, float[] keepOut) {
+        if (typeface == this.typeface && minTextSize == this.minTextSize
+                && maxTextSize == this.maxTextSize && width == this.width
+                && height == this.height && round == this.round
+                && Arrays.equals(keepOut, this.keepOut)) {
+            return false;
+        }
+        this.typeface = typeface;
+        this.minTextSize = minTextSize;
+        this.maxTextSize = maxTextSize;
+        this.width = width;
+        this.height = height;
+        this.round = round;
+        this.keepOut = keepOut.clone();
+        fitter.setTypeface(typeface);
+        fitter.fit(width, height, round, this.keepOut, minTextSize, maxTextSize, textSizes);
+        invalidate();
+        return true;
+    }
+
+    void invalidate() {
+        for (int i = 0; i < layouts.length; i++) {
+            layouts[i] = null;
+        }
+    }
+
+    PhraseLayout get(Phrase phrase) {
+        PhraseLayout layout = layouts[phrase.id];
+        if (layout == null) {
+            layout = measure(phrase);
+            layouts[phrase.id] = layout;
+        }
+        return layout;
+    }
+
+    private PhraseLayout measure(Phrase phrase) {
+        float textSize = textSizes[phrase.id];
+        PhraseLayout layout = new PhraseLayout(phrase, textSize);
+        float centerX = width / 2f;
+        float centerY = height / 2f;
+        float[] lineX = new float[phrase.lineCount()];
+        int line = -1;
+        float x = 0;
+        float y = 0;
+        for (int i = 0; i < phrase.runs.length; i++) {
+            if (phrase.runLine[i] != line) {
+                line = phrase.runLine[i];
+                x = centerX - measurer.measureText(phrase.lines[line], textSize) / 2;
+                y = getLineBaseline(phrase, line, centerY, textSize);
+                lineX[line] = x;
+            }
+            layout.runX[i] = x;
+            layout.runY[i] = y;
+            layout.runWidth[i] = measurer.measureText(phrase.runs[i], textSize);
+            x += layout.runWidth[i];
+        }
+        /* Words are positioned by the text in front of them on their line. */
+        int offset = 0;
+        for (int i = 0; i < phrase.words.length; i++) {
+            if (i == 0 || phrase.wordLine[i] != phrase.wordLine[i - 1]) {
+                line = phrase.wordLine[i];
+                offset = 0;
+            }
+            layout.wordX[i] = offset == 0 ? lineX[line]
+                    : lineX[line] + measurer.measureText(phrase.lines[line].substring(0, offset), textSize);
+            layout.wordY[i] = getLineBaseline(phrase, line, centerY, textSize);
+            offset += phrase.words[i].length() + 1;
+        }
+        return layout;
+    }
+
+    static float getLineBaseline(Phrase phrase, int line, float centerY, float textSize) {
+        if (phrase.layout == Phrase.LAYOUT_ONE_LINE)
+            return centerY + textSize/2;
+        return line == 0 ? centerY - textSize/2 : centerY + textSize;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.textwatchface;
+
+/**
+ * Measures the advance width of text, usually backed by a {@link android.graphics.Paint}. Keeps
+ * the layout code free of Android types.
+ */
+interface TextMeasurer {
+
+    float measureText(String text, float textSize);
+}
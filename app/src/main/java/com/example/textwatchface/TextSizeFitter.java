@@ -0,0 +1,135 @@
+package com.example.textwatchface;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the largest text size at which every phrase of a {@link PhraseTable} fits the safe area
+ * of a round or square surface without covering any of the keep-out rects, the complication
+ * slots in use. The advance of every distinct word is measured once per typeface
+ * at a reference size and scaled, so fitting a new surface size is a binary search over a few
+ * multiplications per phrase without measuring any text.
+ */
+final class TextSizeFitter {
+
+    static final float REFERENCE_TEXT_SIZE = 100;
+
+    static final float[] NO_KEEP_OUT = new float[0];
+
+    /* Approximate extent of a line above and below its baseline, as fractions of the text size. */
+    private static final float ASCENT = 0.75f;
+    private static final float DESCENT = 0.25f;
+    /* Margin kept free at the edge of the surface, as a fraction of its smaller side. */
+    private static final float MARGIN = 0.05f;
+    private static final int SEARCH_STEPS = 12;
+
+    private final PhraseTable phraseTable;
+    private final TextMeasurer measurer;
+    private final Map<String, Float> wordAdvances = new HashMap<>();
+    /* Advance of every line of every phrase at the reference size, indexed by phrase id. */
+    private final float[][] lineAdvances;
+
+    private Object typeface;
+    private boolean measured;
+
+    TextSizeFitter(PhraseTable phraseTable, TextMeasurer measurer) {
+        this.phraseTable = phraseTable;
+        this.measurer = measurer;
+        lineAdvances = new float[phraseTable.size()][];
+    }
+
+    /**
+     * Measures the words with a new typeface, does nothing if it is the one measured last.
+     *
+     * @param typeface identity of the font the measurer uses, compared by reference
+     */
+    void setTypeface(Object typeface) {
+        if (measured && typeface == this.typeface) {
+            return;
+        }
+        this.typeface = typeface;
+        measured = true;
+        wordAdvances.clear();
+        float space = measurer.measureText(" ", REFERENCE_TEXT_SIZE);
+        for (int id = 0; id < lineAdvances.length; id++) {
+            Phrase phrase = phraseTable.phraseAt(id);
+            float[] advances = new float[phrase.lineCount()];
+            for (int line = 0; line < advances.length; line++) {
+                String[] words = phrase.lines[line].split(" ");
+                advances[line] = space * (words.length - 1);
+                for (String word : words) {
+                    advances[line] += wordAdvance(word);
+                }
+            }
+            lineAdvances[id] = advances;
+        }
+    }
+
+    /**
+     * Writes the fitted size of every phrase, indexed by phrase id, into {@code sizes}. Phrases
+     * that fit at {@code maxTextSize} get it, phrases that don't fit at {@code minTextSize} get
+     * that.
+     *
+     * @param keepOut rects no line may intersect, as left, top, right, bottom quadruples
+     */
+    void fit(float width, float height, boolean round, float[] keepOut, float minTextSize,
+             float maxTextSize, float[] sizes) {
+        for (int id = 0; id < lineAdvances.length; id++) {
+            Phrase phrase = phraseTable.phraseAt(id);
+            if (fits(phrase, maxTextSize, width, height, round, keepOut)) {
+                sizes[id] = maxTextSize;
+                continue;
+            }
+            float low = minTextSize;
+            float high = maxTextSize;
+            for (int step = 0; step < SEARCH_STEPS; step++) {
+                float size = (low + high) / 2;
+                if (fits(phrase, size, width, height, round, keepOut)) {
+                    low = size;
+                } else {
+                    high = size;
+                }
+            }
+            sizes[id] = (float) Math.floor(low);
+        }
+    }
+
+    private float wordAdvance(String word) {
+        Float advance = wordAdvances.get(word);
+        if (advance == null) {
+            advance = measurer.measureText(word, REFERENCE_TEXT_SIZE);
+            wordAdvances.put(word, advance);
+        }
+        return advance;
+    }
+
+    private boolean fits(Phrase phrase, float textSize, float width, float height, boolean round,
+                         float[] keepOut) {
+        float margin = Math.min(width, height) * MARGIN;
+        float centerX = width / 2f;
+        float centerY = height / 2f;
+        float radius = Math.min(width, height) / 2f - margin;
+        float[] advances = lineAdvances[phrase.id];
+        for (int line = 0; line < advances.length; line++) {
+            float halfWidth = advances[line] * textSize / REFERENCE_TEXT_SIZE / 2;
+            float baseline = TextLayoutCache.getLineBaseline(phrase, line, centerY, textSize);
+            float top = baseline - ASCENT * textSize;
+            float bottom = baseline + DESCENT * textSize;
+            if (round) {
+                float dy = Math.max(centerY - top, bottom - centerY);
+                if (dy >= radius || halfWidth * halfWidth > radius * radius - dy * dy) {
+                    return false;
+                }
+            } else if (top < margin || bottom > height - margin || halfWidth > centerX - margin) {
+                return false;
+            }
+            for (int i = 0; i < keepOut.length; i += 4) {
+                if (centerX - halfWidth < keepOut[i + 2] && centerX + halfWidth > keepOut[i]
+                        && top < keepOut[i + 3] && bottom > keepOut[i + 1]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
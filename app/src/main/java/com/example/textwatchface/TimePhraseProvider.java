@@ -0,0 +1,28 @@
+package com.example.textwatchface;
+
+import java.util.Locale;
+
+/**
+ * Wording of the time for one language. Providers are only consulted while a
+ * {@link PhraseTable} is compiled, never on the draw path.
+ */
+interface TimePhraseProvider {
+
+    /**
+     * Locale used for everything else shown on the face, e.g. the weekday names.
+     */
+    Locale getLocale();
+
+    /**
+     * Returns the one to four words that spell the given time.
+     *
+     * @param hour hour on the 12 hour dial, 0 to 11
+     * @param minute minute of the hour, 0 to 59
+     */
+    String[] getWords(int hour, int minute);
+
+    /**
+     * Returns the index of the word in {@link #getWords(int, int)} that names the hour.
+     */
+    int getHourWord(int hour, int minute);
+}
@@ -0,0 +1,117 @@
+package com.example.textwatchface;
+
+import java.util.Locale;
+
+import static com.example.textwatchface.RulePhraseProvider.HOUR;
+
+/**
+ * The languages the watch face can spell the time in.
+ */
+final class TimePhraseProviders {
+
+    private TimePhraseProviders() {
+    }
+
+    /**
+     * Returns the provider for the given locale, German if the language is not supported.
+     */
+    static TimePhraseProvider forLocale(Locale locale) {
+        switch (locale.getLanguage()) {
+            case "en":
+                return english();
+            case "nl":
+                return dutch();
+            case "de":
+                if ("AT".equals(locale.getCountry())) {
+                    return regionalGerman();
+                }
+                return german();
+            default:
+                return german();
+        }
+    }
+
+    static TimePhraseProvider german() {
+        return new RulePhraseProvider.Builder(Locale.GERMAN,
+                "zwölf", "eins", "zwei", "drei", "vier", "fünf",
+                "sechs", "sieben", "acht", "neun", "zehn", "elf")
+                .rule(0, 2, 0, HOUR, "uhr")
+                .rule(3, 6, 0, "fünf", "nach", HOUR)
+                .rule(7, 12, 0, "zehn", "nach", HOUR)
+                .rule(13, 17, 0, "viertel", "nach", HOUR)
+                .rule(18, 22, 0, "zwanzig", "nach", HOUR)
+                .rule(23, 27, 1, "kurz", "vor", "halb", HOUR)
+                .rule(28, 32, 1, "halb", HOUR)
+                .rule(33, 37, 1, "kurz", "nach", "halb", HOUR)
+                .rule(38, 42, 1, "zwanzig", "vor", HOUR)
+                .rule(43, 47, 1, "viertel", "vor", HOUR)
+                .rule(48, 52, 1, "zehn", "vor", HOUR)
+                .rule(53, 57, 1, "fünf", "vor", HOUR)
+                .rule(58, 59, 1, HOUR, "uhr")
+                .build();
+    }
+
+    /**
+     * German as spoken in Austria and parts of southern and eastern Germany, counting quarters
+     * towards the next hour ("viertel drei", "dreiviertel drei").
+     */
+    static TimePhraseProvider regionalGerman() {
+        return new RulePhraseProvider.Builder(new Locale("de", "AT"),
+                "zwölf", "eins", "zwei", "drei", "vier", "fünf",
+                "sechs", "sieben", "acht", "neun", "zehn", "elf")
+                .rule(0, 2, 0, HOUR, "uhr")
+                .rule(3, 6, 0, "fünf", "nach", HOUR)
+                .rule(7, 12, 0, "zehn", "nach", HOUR)
+                .rule(13, 17, 1, "viertel", HOUR)
+                .rule(18, 22, 1, "zehn", "vor", "halb", HOUR)
+                .rule(23, 27, 1, "fünf", "vor", "halb", HOUR)
+                .rule(28, 32, 1, "halb", HOUR)
+                .rule(33, 37, 1, "fünf", "nach", "halb", HOUR)
+                .rule(38, 42, 1, "zehn", "nach", "halb", HOUR)
+                .rule(43, 47, 1, "dreiviertel", HOUR)
+                .rule(48, 52, 1, "zehn", "vor", HOUR)
+                .rule(53, 57, 1, "fünf", "vor", HOUR)
+                .rule(58, 59, 1, HOUR, "uhr")
+                .build();
+    }
+
+    static TimePhraseProvider english() {
+        return new RulePhraseProvider.Builder(Locale.ENGLISH,
+                "twelve", "one", "two", "three", "four", "five",
+                "six", "seven", "eight", "nine", "ten", "eleven")
+                .rule(0, 2, 0, HOUR, "o'clock")
+                .rule(3, 6, 0, "five", "past", HOUR)
+                .rule(7, 12, 0, "ten", "past", HOUR)
+                .rule(13, 17, 0, "quarter", "past", HOUR)
+                .rule(18, 22, 0, "twenty", "past", HOUR)
+                .rule(23, 27, 0, "twenty", "five", "past", HOUR)
+                .rule(28, 32, 0, "half", "past", HOUR)
+                .rule(33, 37, 1, "twenty", "five", "to", HOUR)
+                .rule(38, 42, 1, "twenty", "to", HOUR)
+                .rule(43, 47, 1, "quarter", "to", HOUR)
+                .rule(48, 52, 1, "ten", "to", HOUR)
+                .rule(53, 57, 1, "five", "to", HOUR)
+                .rule(58, 59, 1, HOUR, "o'clock")
+                .build();
+    }
+
+    static TimePhraseProvider dutch() {
+        return new RulePhraseProvider.Builder(new Locale("nl"),
+                "twaalf", "een", "twee", "drie", "vier", "vijf",
+                "zes", "zeven", "acht", "negen", "tien", "elf")
+                .rule(0, 2, 0, HOUR, "uur")
+                .rule(3, 6, 0, "vijf", "over", HOUR)
+                .rule(7, 12, 0, "tien", "over", HOUR)
+                .rule(13, 17, 0, "kwart", "over", HOUR)
+                .rule(18, 22, 1, "tien", "voor", "half", HOUR)
+                .rule(23, 27, 1, "vijf", "voor", "half", HOUR)
+                .rule(28, 32, 1, "half", HOUR)
+                .rule(33, 37, 1, "vijf", "over", "half", HOUR)
+                .rule(38, 42, 1, "tien", "over", "half", HOUR)
+                .rule(43, 47, 1, "kwart", "voor", HOUR)
+                .rule(48, 52, 1, "tien", "voor", HOUR)
+                .rule(53, 57, 1, "vijf", "voor", HOUR)
+                .rule(58, 59, 1, HOUR, "uur")
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.textwatchface;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes when the visible content of the watch face changes next, so the engine can sleep
+ * until then instead of redrawing on a fixed tick. The status line shows the minute in every
+ * interactive frame, so that is the next minute boundary. Events that change the face at
+ * arbitrary times (battery, complications, taps) invalidate directly and are not covered here.
+ */
+final class UpdateScheduler {
+
+    private static final long MINUTE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private UpdateScheduler() {
+    }
+
+    /**
+     * Returns the wall clock time of the next content change.
+     */
+    static long getNextChangeMillis(long nowMillis) {
+        return nowMillis - (nowMillis % MINUTE_MS) + MINUTE_MS;
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.textwatchface;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts per minute how often each source woke the watch face, how often it invalidated and how
+ * many frames were drawn. Finished minutes are kept in memory and written in batches on a
+ * background thread to a fixed-size ring file, the last {@link #CAPACITY_MINUTES} minutes with
+ * any activity. Counting does not allocate, so it can run in {@code onDraw}. A flush also writes
+ * the counts of the current minute so far; what the minute counts afterwards is written as a
+ * difference that is added to its record, so a minute takes one slot however often it's flushed.
+ *
+ * <p>Ring file layout, big-endian: a header of magic, version, source count, capacity and the
+ * next slot to write, then {@link #CAPACITY_MINUTES} records of the epoch minute followed by the
+ * wakeups and invalidations of every source and the draws as unsigned shorts.
+ *
+ * <p>All methods must be called on the main thread; only the writer thread touches the file.
+ */
+final class WakeupLog {
+
+    static final String FILE_NAME = "wakeups.bin";
+
+    /* handleUpdateTimeMessage. */
+    static final int SOURCE_TIMER = 0;
+    /* onTimeTick. */
+    static final int SOURCE_TIME_TICK = 1;
+    static final int SOURCE_COMPLICATION = 2;
+    static final int SOURCE_BATTERY = 3;
+    /* Time zone, time and locale broadcasts. */
+    static final int SOURCE_RECEIVER = 4;
+    /* Taps and the date overlay they show. */
+    static final int SOURCE_TAP = 5;
+    static final int SOURCE_ANIMATION = 6;
+    /* Style settings and loaded typefaces. */
+    static final int SOURCE_STYLE = 7;
+    /* Visibility and ambient mode changes. */
+    static final int SOURCE_MODE = 8;
+    static final int SOURCE_COUNT = 9;
+
+    private static final String[] SOURCE_NAMES = {
+            "timer", "tick", "complication", "battery", "receiver", "tap", "animation", "style", "mode"};
+
+    static final int CAPACITY_MINUTES = 24 * 60;
+    /* Finished minutes collected before they are written. */
+    private static final int FLUSH_MINUTES = 15;
+    /* Finished minutes kept in memory at most; the oldest is dropped if flushing falls behind. */
+    private static final int PENDING_CAPACITY = 4 * FLUSH_MINUTES;
+
+    private static final int MAGIC = 0x574b4c47;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int NEXT_OFFSET = 12;
+    /* Wakeups per source, invalidations per source, draws. */
+    private static final int FIELD_COUNT = 2 * SOURCE_COUNT + 1;
+    private static final int DRAWS = 2 * SOURCE_COUNT;
+    private static final int RECORD_SIZE = 4 + 2 * FIELD_COUNT;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+
+    private final File file;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    private long currentMinute = Long.MIN_VALUE;
+    private final int[] current = new int[FIELD_COUNT];
+    /* Counts of the current minute already handed to the writer. */
+    private final int[] flushed = new int[FIELD_COUNT];
+    private final long[] pendingMinutes = new long[PENDING_CAPACITY];
+    private final int[][] pending = new int[PENDING_CAPACITY][FIELD_COUNT];
+    private int pendingCount;
+
+    WakeupLog(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Counts an event that woke the watch face, whether or not it invalidated.
+     */
+    void recordWakeup(int source) {
+        count(source);
+    }
+
+    void recordInvalidation(int source) {
+        count(SOURCE_COUNT + source);
+    }
+
+    void recordDraw() {
+        count(DRAWS);
+    }
+
+    /**
+     * Writes the finished minutes once enough of them were collected.
+     */
+    void flushIfDue() {
+        if (pendingCount >= FLUSH_MINUTES) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the finished minutes and the counts of the current one so far, e.g. before the
+     * watch face becomes invisible. The current minute goes on counting.
+     */
+    void flush() {
+        boolean currentChanged = hasUnflushedCounts();
+        if (pendingCount == 0 && !currentChanged) {
+            return;
+        }
+        final ByteBuffer records = ByteBuffer.allocate((pendingCount + 1) * RECORD_SIZE);
+        for (int i = 0; i < pendingCount; i++) {
+            putRecord(records, pendingMinutes[i], pending[i]);
+        }
+        pendingCount = 0;
+        if (currentChanged) {
+            int[] fields = new int[FIELD_COUNT];
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                fields[i] = current[i] - flushed[i];
+            }
+            putRecord(records, currentMinute, fields);
+            System.arraycopy(current, 0, flushed, 0, FIELD_COUNT);
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(records.array(), records.position());
+            }
+        });
+    }
+
+    /**
+     * Flushes and stops the writer once the pending writes are done.
+     */
+    void close() {
+        flush();
+        writer.shutdown();
+    }
+
+    /**
+     * Collects the counts of the ring file and of the minutes still in memory. The file is read
+     * on the writer thread once the writes flushed before are done, so every count is in the
+     * result exactly once; {@link #print} formats it on any thread.
+     *
+     * @return the counts per epoch minute
+     */
+    Future<TreeMap<Long, int[]>> snapshot() {
+        final TreeMap<Long, int[]> memory = new TreeMap<>();
+        for (int i = 0; i < pendingCount; i++) {
+            add(memory, pendingMinutes[i], pending[i]);
+        }
+        if (hasUnflushedCounts()) {
+            add(memory, currentMinute, current);
+            subtract(memory, currentMinute, flushed);
+        }
+        return writer.submit(new Callable<TreeMap<Long, int[]>>() {
+            @Override
+            public TreeMap<Long, int[]> call() throws IOException {
+                TreeMap<Long, int[]> counts = new TreeMap<>();
+                readFile(counts);
+                for (Map.Entry<Long, int[]> minute : memory.entrySet()) {
+                    add(counts, minute.getKey(), minute.getValue());
+                }
+                return counts;
+            }
+        });
+    }
+
+    /**
+     * Prints the counts of a {@link #snapshot} per hour, and with {@code minutes} every minute
+     * as CSV.
+     */
+    static void print(PrintWriter out, TreeMap<Long, int[]> counts, boolean minutes) {
+        out.println("Wakeups/invalidations per hour:");
+        SimpleDateFormat hourFormat = new SimpleDateFormat("yyyy-MM-dd HH:00", Locale.ROOT);
+        TreeMap<Long, int[]> hours = new TreeMap<>();
+        for (Map.Entry<Long, int[]> minute : counts.entrySet()) {
+            add(hours, minute.getKey() / 60 * 60, minute.getValue());
+        }
+        for (Map.Entry<Long, int[]> hour : hours.entrySet()) {
+            int[] fields = hour.getValue();
+            StringBuilder line = new StringBuilder("  ")
+                    .append(hourFormat.format(new Date(hour.getKey() * MILLIS_PER_MINUTE)))
+                    .append(" draws ").append(fields[DRAWS]);
+            for (int source = 0; source < SOURCE_COUNT; source++) {
+                if (fields[source] != 0 || fields[SOURCE_COUNT + source] != 0) {
+                    line.append(", ").append(SOURCE_NAMES[source]).append(' ')
+                            .append(fields[source]).append('/').append(fields[SOURCE_COUNT + source]);
+                }
+            }
+            out.println(line);
+        }
+        if (!minutes) {
+            return;
+        }
+        StringBuilder header = new StringBuilder("epoch_minute");
+        for (int source = 0; source < SOURCE_COUNT; source++) {
+            header.append(',').append(SOURCE_NAMES[source]).append("_wakeups");
+        }
+        for (int source = 0; source < SOURCE_COUNT; source++) {
+            header.append(',').append(SOURCE_NAMES[source]).append("_invalidations");
+        }
+        out.println(header.append(",draws"));
+        for (Map.Entry<Long, int[]> minute : counts.entrySet()) {
+            StringBuilder line = new StringBuilder().append(minute.getKey());
+            for (int field : minute.getValue()) {
+                line.append(',').append(field);
+            }
+            out.println(line);
+        }
+    }
+
+    private void count(int field) {
+        long minute = System.currentTimeMillis() / MILLIS_PER_MINUTE;
+        if (minute != currentMinute) {
+            finishMinute();
+            currentMinute = minute;
+        }
+        current[field]++;
+    }
+
+    private boolean hasUnflushedCounts() {
+        if (currentMinute == Long.MIN_VALUE) {
+            return false;
+        }
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            if (current[i] != flushed[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Moves what the current minute counted since it was last flushed to the pending minutes,
+     * if anything.
+     */
+    private void finishMinute() {
+        if (!hasUnflushedCounts()) {
+            clearCurrent();
+            return;
+        }
+        if (pendingCount == PENDING_CAPACITY) {
+            /* Drop the oldest minute, reusing its row for the newest. */
+            int[] oldest = pending[0];
+            System.arraycopy(pendingMinutes, 1, pendingMinutes, 0, PENDING_CAPACITY - 1);
+            System.arraycopy(pending, 1, pending, 0, PENDING_CAPACITY - 1);
+            pending[PENDING_CAPACITY - 1] = oldest;
+            pendingCount--;
+        }
+        pendingMinutes[pendingCount] = currentMinute;
+        int[] row = pending[pendingCount];
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            row[i] = current[i] - flushed[i];
+        }
+        pendingCount++;
+        clearCurrent();
+    }
+
+    private void clearCurrent() {
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            current[i] = 0;
+            flushed[i] = 0;
+        }
+        currentMinute = Long.MIN_VALUE;
+    }
+
+    private static void putRecord(ByteBuffer buffer, long minute, int[] fields) {
+        buffer.putInt((int) minute);
+        for (int field : fields) {
+            buffer.putChar((char) Math.min(field, Character.MAX_VALUE));
+        }
+    }
+
+    private static long getRecord(ByteBuffer buffer, int[] fields) {
+        long minute = buffer.getInt();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            fields[i] = buffer.getChar();
+        }
+        return minute;
+    }
+
+    /*
+     * Runs on the writer thread. A record of the minute the last written slot holds, flushed
+     * before that minute ended, is added to the slot.
+     */
+    private void append(byte[] records, int length) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int next = readNext(raf);
+            if (next < 0) {
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                raf.writeShort(VERSION);
+                raf.writeShort(SOURCE_COUNT);
+                raf.writeInt(CAPACITY_MINUTES);
+                raf.writeInt(0);
+                next = 0;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(records, 0, length);
+            byte[] record = new byte[RECORD_SIZE];
+            int[] fields = new int[FIELD_COUNT];
+            int[] previous = new int[FIELD_COUNT];
+            while (buffer.hasRemaining()) {
+                long minute = getRecord(buffer, fields);
+                int last = (next + CAPACITY_MINUTES - 1) % CAPACITY_MINUTES;
+                long lastOffset = HEADER_SIZE + (long) last * RECORD_SIZE;
+                int slot = next;
+                if (raf.length() >= lastOffset + RECORD_SIZE) {
+                    raf.seek(lastOffset);
+                    raf.readFully(record);
+                    if (getRecord(ByteBuffer.wrap(record), previous) == minute) {
+                        slot = last;
+                        for (int i = 0; i < FIELD_COUNT; i++) {
+                            fields[i] += previous[i];
+                        }
+                    }
+                }
+                putRecord(ByteBuffer.wrap(record), minute, fields);
+                raf.seek(HEADER_SIZE + (long) slot * RECORD_SIZE);
+                raf.write(record);
+                if (slot == next) {
+                    next = (next + 1) % CAPACITY_MINUTES;
+                }
+            }
+            raf.seek(NEXT_OFFSET);
+            raf.writeInt(next);
+        } catch (IOException e) {
+            Log.e("WATCHFACE", "Writing " + file + " failed: " + e);
+        }
+    }
+
+    /* Next slot to write, or -1 if the file is missing or was written in another format. */
+    private static int readNext(RandomAccessFile raf) throws IOException {
+        if (raf.length() < HEADER_SIZE) {
+            return -1;
+        }
+        raf.seek(0);
+        if (raf.readInt() != MAGIC || raf.readShort() != VERSION || raf.readShort() != SOURCE_COUNT
+                || raf.readInt() != CAPACITY_MINUTES) {
+            return -1;
+        }
+        int next = raf.readInt();
+        return next >= 0 && next < CAPACITY_MINUTES ? next : -1;
+    }
+
+    /* Runs on the writer thread. */
+    private void readFile(TreeMap<Long, int[]> counts) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (readNext(raf) < 0) {
+                return;
+            }
+            int slots = (int) Math.min(CAPACITY_MINUTES, (raf.length() - HEADER_SIZE) / RECORD_SIZE);
+            byte[] bytes = new byte[slots * RECORD_SIZE];
+            raf.seek(HEADER_SIZE);
+            raf.readFully(bytes);
+            ByteBuffer records = ByteBuffer.wrap(bytes);
+            int[] fields = new int[FIELD_COUNT];
+            for (int slot = 0; slot < slots; slot++) {
+                long minute = getRecord(records, fields);
+                add(counts, minute, fields);
+            }
+        }
+    }
+
+    private static void add(TreeMap<Long, int[]> counts, long key, int[] fields) {
+        int[] sum = counts.get(key);
+        if (sum == null) {
+            sum = new int[FIELD_COUNT];
+            counts.put(key, sum);
+        }
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            sum[i] += fields[i];
+        }
+    }
+
+    private static void subtract(TreeMap<Long, int[]> counts, long key, int[] fields) {
+        int[] sum = counts.get(key);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            sum[i] -= fields[i];
+        }
+    }
+}
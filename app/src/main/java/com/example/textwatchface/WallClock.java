@@ -0,0 +1,153 @@
+package com.example.textwatchface;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Local wall-clock fields of the current time, without {@link java.util.Calendar}. The UTC offset
+ * of the zone is cached together with the period it is valid for, up to the next daylight saving
+ * transition, so a regular update is integer arithmetic on the epoch millis and the date is only
+ * derived again when the day changes. The time source can be replaced to drive a virtual clock.
+ */
+final class WallClock {
+
+    interface TimeSource {
+        long currentTimeMillis();
+    }
+
+    static final TimeSource SYSTEM_TIME = new TimeSource() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final long MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    private final TimeSource timeSource;
+    private ZoneRules rules;
+
+    /* Offset in millis and the UTC range [offsetValidFrom, offsetValidUntil) it applies to. */
+    private long offset;
+    private long offsetValidFrom = Long.MAX_VALUE;
+    private long offsetValidUntil = Long.MIN_VALUE;
+    private long day = Long.MIN_VALUE;
+
+    private long millis;
+    private int hourOfDay;
+    private int minute;
+    private int year;
+    private int month;
+    private int dayOfMonth;
+    private int dayOfWeek;
+
+    WallClock(TimeSource timeSource, ZoneId zone) {
+        this.timeSource = timeSource;
+        setZone(zone);
+    }
+
+    /**
+     * Switches to another zone, e.g. after {@link android.content.Intent#ACTION_TIMEZONE_CHANGED}.
+     * The fields are updated on the next {@link #update}.
+     */
+    void setZone(ZoneId zone) {
+        rules = zone.getRules();
+        offsetValidFrom = Long.MAX_VALUE;
+        offsetValidUntil = Long.MIN_VALUE;
+        day = Long.MIN_VALUE;
+    }
+
+    /**
+     * Reads the time source and updates the fields.
+     *
+     * @return the current time in epoch millis
+     */
+    long update() {
+        update(timeSource.currentTimeMillis());
+        return millis;
+    }
+
+    void update(long currentTimeMillis) {
+        millis = currentTimeMillis;
+        if (currentTimeMillis < offsetValidFrom || currentTimeMillis >= offsetValidUntil) {
+            updateOffset(currentTimeMillis);
+        }
+        long local = currentTimeMillis + offset;
+        long localDay = Math.floorDiv(local, MILLIS_PER_DAY);
+        long millisOfDay = local - localDay * MILLIS_PER_DAY;
+        hourOfDay = (int) (millisOfDay / MILLIS_PER_HOUR);
+        minute = (int) (millisOfDay / MILLIS_PER_MINUTE % 60);
+        if (localDay != day) {
+            day = localDay;
+            updateDate(localDay);
+        }
+    }
+
+    long getMillis() {
+        return millis;
+    }
+
+    /** 0-23. */
+    int getHourOfDay() {
+        return hourOfDay;
+    }
+
+    /** 0-11, like {@link java.util.Calendar#HOUR}. */
+    int getHour() {
+        return hourOfDay % 12;
+    }
+
+    int getMinute() {
+        return minute;
+    }
+
+    int getYear() {
+        return year;
+    }
+
+    /** 0-11, like {@link java.util.Calendar#MONTH}. */
+    int getMonth() {
+        return month;
+    }
+
+    int getDayOfMonth() {
+        return dayOfMonth;
+    }
+
+    /** {@link java.util.Calendar#SUNDAY} to {@link java.util.Calendar#SATURDAY}. */
+    int getDayOfWeek() {
+        return dayOfWeek;
+    }
+
+    private void updateOffset(long currentTimeMillis) {
+        Instant instant = Instant.ofEpochMilli(currentTimeMillis);
+        offset = rules.getOffset(instant).getTotalSeconds() * 1000L;
+        ZoneOffsetTransition previous = rules.previousTransition(instant);
+        ZoneOffsetTransition next = rules.nextTransition(instant);
+        offsetValidFrom = previous == null ? Long.MIN_VALUE : previous.getInstant().toEpochMilli();
+        offsetValidUntil = next == null ? Long.MAX_VALUE : next.getInstant().toEpochMilli();
+    }
+
+    /*
+     * Civil date of a day count since 1970-01-01, after Howard Hinnant's days_from_civil inverse:
+     * years are counted from March so the leap day is the last day of the year.
+     */
+    private void updateDate(long epochDay) {
+        long days = epochDay + 719468;
+        long era = Math.floorDiv(days, 146097);
+        long dayOfEra = days - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        dayOfMonth = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month1 = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        year = (int) (yearOfEra + era * 400 + (month1 <= 2 ? 1 : 0));
+        month = month1 - 1;
+        /* 1970-01-01 was a Thursday. */
+        dayOfWeek = (int) Math.floorMod(epochDay + 4, 7L) + 1;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.textwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every word of a {@link PhraseTable}, rasterized once per text size into one alpha-only bitmap.
+ * Drawing a phrase is then a blit of precomputed word rectangles tinted by the paint's color,
+ * without shaping or rasterizing any text. The atlas is built from the layouts of a
+ * {@link TextLayoutCache} and has to be rebuilt when they change, see {@link #isBuiltFor}.
+ */
+final class WordAtlas {
+
+    private static final int MAX_WIDTH = 1024;
+    /* Empty pixels around every sprite so filtering never samples a neighbour. */
+    private static final int PADDING = 1;
+
+    private static final class Sprite {
+        final String word;
+        final float textSize;
+        /* Tight bounds of the glyphs relative to the pen position on the baseline. */
+        final Rect bounds;
+        /* Position in the atlas, including the padding. */
+        final Rect source;
+
+        Sprite(String word, float textSize, Rect bounds, Rect source) {
+            this.word = word;
+            this.textSize = textSize;
+            this.bounds = bounds;
+            this.source = source;
+        }
+    }
+
+    private Bitmap bitmap;
+    /* Per phrase id: the layout the sprites were placed for, and source and target of every word. */
+    private PhraseLayout[] layouts;
+    private Rect[][] sources;
+    private Rect[][] targets;
+
+    boolean isBuiltFor(PhraseLayout layout) {
+        return layouts != null && layouts[layout.phrase.id] == layout;
+    }
+
+    /**
+     * Rasterizes the words of every phrase at the size of its layout.
+     *
+     * @param paint typeface, anti-aliasing and style the words are rasterized with, its text size
+     *              is changed
+     */
+    void build(PhraseTable table, TextLayoutCache layoutCache, Paint paint) {
+        release();
+        /* Text bounds do not include the stroke of outlined words. */
+        int padding = paint.getStyle() == Paint.Style.FILL
+                ? PADDING : PADDING + (int) Math.ceil(paint.getStrokeWidth() / 2);
+        int phraseCount = table.size();
+        layouts = new PhraseLayout[phraseCount];
+        sources = new Rect[phraseCount][];
+        targets = new Rect[phraseCount][];
+
+        /* Measure every distinct word and size once and pack them into rows. */
+        Map<String, Sprite> sprites = new HashMap<>();
+        List<Sprite> spriteList = new ArrayList<>();
+        Rect textBounds = new Rect();
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        int width = 0;
+        for (int id = 0; id < phraseCount; id++) {
+            PhraseLayout layout = layoutCache.get(table.phraseAt(id));
+            layouts[id] = layout;
+            paint.setTextSize(layout.textSize);
+            for (String word : layout.phrase.words) {
+                String key = word + '@' + layout.textSize;
+                if (sprites.containsKey(key)) {
+                    continue;
+                }
+                paint.getTextBounds(word, 0, word.length(), textBounds);
+                int spriteWidth = textBounds.width() + 2 * padding;
+                int spriteHeight = textBounds.height() + 2 * padding;
+                if (x + spriteWidth > MAX_WIDTH && x > 0) {
+                    x = 0;
+                    y += rowHeight;
+                    rowHeight = 0;
+                }
+                Sprite sprite = new Sprite(word, layout.textSize, new Rect(textBounds),
+                        new Rect(x, y, x + spriteWidth, y + spriteHeight));
+                sprites.put(key, sprite);
+                spriteList.add(sprite);
+                x += spriteWidth;
+                rowHeight = Math.max(rowHeight, spriteHeight);
+                width = Math.max(width, x);
+            }
+        }
+        int height = y + rowHeight;
+        if (width == 0 || height == 0) {
+            layouts = null;
+            return;
+        }
+
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(bitmap);
+        for (Sprite sprite : spriteList) {
+            paint.setTextSize(sprite.textSize);
+            canvas.drawText(sprite.word, sprite.source.left + padding - sprite.bounds.left,
+                    sprite.source.top + padding - sprite.bounds.top, paint);
+        }
+
+        /* Place the words of every phrase where its layout draws them. */
+        for (int id = 0; id < phraseCount; id++) {
+            PhraseLayout layout = layouts[id];
+            Phrase phrase = layout.phrase;
+            sources[id] = new Rect[phrase.words.length];
+            targets[id] = new Rect[phrase.words.length];
+            for (int i = 0; i < phrase.words.length; i++) {
+                Sprite sprite = sprites.get(phrase.words[i] + '@' + layout.textSize);
+                int left = Math.round(layout.wordX[i]) + sprite.bounds.left - padding;
+                int top = Math.round(layout.wordY[i]) + sprite.bounds.top - padding;
+                sources[id][i] = sprite.source;
+                targets[id][i] = new Rect(left, top, left + sprite.source.width(),
+                        top + sprite.source.height());
+            }
+        }
+    }
+
+    /**
+     * Draws a phrase whose layout the atlas was built for, the hour word with the hour paint.
+     */
+    void draw(Canvas canvas, PhraseLayout layout, Paint textPaint, Paint hourPaint) {
+        Phrase phrase = layout.phrase;
+        Rect[] phraseSources = sources[phrase.id];
+        Rect[] phraseTargets = targets[phrase.id];
+        for (int i = 0; i < phraseSources.length; i++) {
+            Paint paint = i == phrase.hourWord ? hourPaint : textPaint;
+            canvas.drawBitmap(bitmap, phraseSources[i], phraseTargets[i], paint);
+        }
+    }
+
+    void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+        layouts = null;
+        sources = null;
+        targets = null;
+    }
+}
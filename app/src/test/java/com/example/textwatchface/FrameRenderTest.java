@@ -0,0 +1,318 @@
+package com.example.textwatchface;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.support.wearable.complications.rendering.ComplicationDrawable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.GraphicsMode;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Renders every minute of a day through the engine's {@link FrameRenderer} with Robolectric's
+ * native graphics, in interactive, ambient and date overlay mode, at the surface sizes of common
+ * round watches. The settled frame of the first minute of every distinct phrase is compared at
+ * full resolution with its golden image in {@code src/test/golden/<mode>_<size>}. When frames
+ * differ, the differing frames and a scaled down contact sheet of the whole day, a row per hour
+ * and a column per minute, are written to {@code build/outputs/golden-frames} for review. After
+ * an intended visual change run the tests with {@code -PupdateGoldenFrames} and review the new
+ * images.
+ *
+ * <p>The time of every frame, including the transition frames after a phrase change, is written
+ * to {@code build/reports/frame-times} as CSV and the engine's frame stats are printed. Software
+ * rendering on the JVM is no watch, so the numbers are for comparing builds with each other.
+ *
+ * <p>The face is set up without complication slots: providers draw their own content, which has
+ * no place in this face's golden images.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 30)
+@GraphicsMode(GraphicsMode.Mode.NATIVE)
+public class FrameRenderTest {
+
+    private static final File GOLDEN_DIRECTORY = new File("src/test/golden");
+    private static final File OUTPUT_DIRECTORY = new File("build/outputs/golden-frames");
+    private static final File REPORT_DIRECTORY = new File("build/reports/frame-times");
+    private static final File FONT_DIRECTORY = new File("src/main/res/font");
+    /* Files of the StyleSettings.FONT_* fonts. */
+    private static final String[] FONT_FILES = {"montserrat.ttf", "baloo.ttf", "poppins.ttf"};
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    /* A Friday without a daylight saving transition. */
+    private static final long DAY_START_MILLIS =
+            LocalDateTime.of(2021, 6, 18, 0, 0).atZone(ZONE).toInstant().toEpochMilli();
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final int BATTERY_PERCENT = 80;
+    /* Scale of the frames on the contact sheet written on failure. */
+    private static final int SHEET_SCALE = 8;
+    /* Largest difference of a color channel between a frame and its golden still accepted. */
+    private static final int TOLERANCE = 2;
+    /* Frames after a phrase change at the engine's animation rate, at most. */
+    private static final int TRANSITION_FRAMES =
+            (int) (PhraseTransition.DURATION_MS / PhraseTransition.FRAME_INTERVAL_MS) + 2;
+
+    private static final int MODE_INTERACTIVE = 0;
+    private static final int MODE_AMBIENT = 1;
+    private static final int MODE_DATE_OVERLAY = 2;
+    private static final String[] MODE_NAMES = {"interactive", "ambient", "date_overlay"};
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0}px")
+    public static Collection<Object[]> surfaceSizes() {
+        return Arrays.asList(new Object[][] {{320}, {390}, {454}});
+    }
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final int size;
+
+    private long now;
+    private PhraseTable phraseTable;
+    private WakeupLog wakeupLog;
+    private ComplicationSlots complicationSlots;
+    private AmbientRenderer ambientRenderer;
+    private FrameRenderer frameRenderer;
+
+    public FrameRenderTest(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        wakeupLog = new WakeupLog(temporaryFolder.newFile(WakeupLog.FILE_NAME));
+        StyleSettings style = StyleSettings.DEFAULT;
+        Typeface phraseTypeface = loadFont(style.phraseFont);
+        Typeface miscTypeface = loadFont(style.miscFont);
+
+        /* The paints as MyWatchFace.Engine.applyStyle sets them up. */
+        final Paint textPaint = new Paint();
+        textPaint.setAntiAlias(true);
+        textPaint.setColor(style.textColor);
+        textPaint.setTypeface(phraseTypeface);
+        Paint hourPaint = new Paint();
+        hourPaint.setAntiAlias(true);
+        hourPaint.setColor(style.hourColor);
+        hourPaint.setTypeface(phraseTypeface);
+        Paint miscPaint = new Paint();
+        miscPaint.setAntiAlias(true);
+        miscPaint.setColor(style.miscColor);
+        miscPaint.setTypeface(miscTypeface);
+        miscPaint.setTextSize(style.textSize / 2);
+
+        complicationSlots = new ComplicationSlots(new int[0], new ComplicationDrawable[0]);
+
+        TimePhraseProvider provider = TimePhraseProviders.forLocale(Locale.GERMAN);
+        phraseTable = PhraseTable.compile(provider);
+        final Paint measurePaint = new Paint();
+        TextLayoutCache textLayoutCache = new TextLayoutCache(phraseTable, new TextMeasurer() {
+            @Override
+            public float measureText(String text, float textSize) {
+                measurePaint.setTypeface(textPaint.getTypeface());
+                measurePaint.setTextSize(textSize);
+                return measurePaint.measureText(text);
+            }
+        });
+        textLayoutCache.configure(phraseTypeface, size * FrameRenderer.MIN_PHRASE_TEXT_SCALE,
+                size * FrameRenderer.MAX_PHRASE_TEXT_SCALE, size, size, true,
+                complicationSlots.getBounds(complicationSlots.getOccupiedSlots()));
+
+        ambientRenderer = new AmbientRenderer(new AmbientRenderer.ComplicationPainter() {
+            @Override
+            public void drawComplications(Canvas canvas, long currentTimeMillis) {
+                complicationSlots.drawAll(canvas, currentTimeMillis);
+            }
+        });
+        ambientRenderer.setPhrases(phraseTable, textLayoutCache);
+        ambientRenderer.configure(phraseTypeface, false, false);
+        ambientRenderer.setShiftStep(Math.max(1, Math.round(size * AmbientRenderer.SHIFT_STEP_SCALE)));
+
+        WallClock wallClock = new WallClock(new WallClock.TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        }, ZONE);
+        frameRenderer = new FrameRenderer(wallClock, complicationSlots, ambientRenderer, wakeupLog,
+                textPaint, hourPaint, miscPaint, new FrameRenderer.Listener() {
+                    @Override
+                    public void onPhraseTransitionStarted(long uptimeMillis) {
+                    }
+                });
+        frameRenderer.setPhrases(phraseTable, textLayoutCache, new ClockFormatter(provider.getLocale()));
+        frameRenderer.setTextSize(style.textSize);
+        frameRenderer.setSurfaceSize(size, size);
+    }
+
+    @After
+    public void tearDown() {
+        frameRenderer.release();
+        ambientRenderer.release();
+        wakeupLog.close();
+    }
+
+    @Test
+    public void interactiveDay() throws IOException {
+        verifyDay(MODE_INTERACTIVE);
+    }
+
+    @Test
+    public void ambientDay() throws IOException {
+        complicationSlots.setInAmbientMode(true);
+        frameRenderer.setAmbient(true);
+        ambientRenderer.buildAtlas();
+        verifyDay(MODE_AMBIENT);
+    }
+
+    @Test
+    public void dateOverlayDay() throws IOException {
+        verifyDay(MODE_DATE_OVERLAY);
+    }
+
+    private Typeface loadFont(int font) {
+        return Typeface.createFromFile(new File(FONT_DIRECTORY, FONT_FILES[font]));
+    }
+
+    /*
+     * Draws every minute the way the engine would: the minute's frame and, in interactive mode,
+     * the transition frames after a phrase change until the phrase settled. The settled frame of
+     * the first minute of every phrase is compared with its golden.
+     */
+    private void verifyDay(int mode) throws IOException {
+        String name = MODE_NAMES[mode] + "_" + size;
+        File goldenDirectory = new File(GOLDEN_DIRECTORY, name);
+        File outputDirectory = new File(OUTPUT_DIRECTORY, name);
+        boolean update = Boolean.getBoolean("updateGoldenFrames");
+        if (update) {
+            /* Phrases may have moved to other minutes, their old goldens must not linger. */
+            File[] stale = goldenDirectory.listFiles();
+            if (stale != null) {
+                for (File file : stale) {
+                    file.delete();
+                }
+            }
+            goldenDirectory.mkdirs();
+        }
+        boolean showDate = mode == MODE_DATE_OVERLAY;
+        Bitmap frame = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(frame);
+        int tileSize = size / SHEET_SCALE;
+        Bitmap sheet = Bitmap.createBitmap(60 * tileSize, 24 * tileSize, Bitmap.Config.ARGB_8888);
+        Canvas sheetCanvas = new Canvas(sheet);
+        Paint tilePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        boolean[] phraseVerified = new boolean[phraseTable.size()];
+        List<String> mismatches = new ArrayList<>();
+        StringBuilder frameTimes = new StringBuilder("time,frame,nanos\n");
+
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            now = DAY_START_MILLIS + minute * MILLIS_PER_MINUTE;
+            String time = String.format(Locale.ROOT, "%02d:%02d", minute / 60, minute % 60);
+            int frameCount = 0;
+            do {
+                long startNanos = System.nanoTime();
+                frameRenderer.draw(canvas, showDate, BATTERY_PERCENT, now);
+                long nanos = System.nanoTime() - startNanos;
+                frameTimes.append(time).append(',').append(frameCount++).append(',')
+                        .append(nanos).append('\n');
+                now += PhraseTransition.FRAME_INTERVAL_MS;
+            } while (frameRenderer.isPhraseTransitionRunning() && frameCount <= TRANSITION_FRAMES);
+
+            int left = minute % 60 * tileSize;
+            int top = minute / 60 * tileSize;
+            sheetCanvas.drawBitmap(frame, null, new Rect(left, top, left + tileSize, top + tileSize),
+                    tilePaint);
+
+            int phraseId = phraseTable.get(minute / 60, minute % 60).id;
+            if (phraseVerified[phraseId]) {
+                continue;
+            }
+            phraseVerified[phraseId] = true;
+            String fileName = time.replace(":", "") + ".png";
+            File golden = new File(goldenDirectory, fileName);
+            if (update) {
+                writePng(frame, golden);
+            } else if (!golden.isFile() || !frameMatches(frame, golden)) {
+                mismatches.add(time + (golden.isFile() ? "" : " (no golden)"));
+                outputDirectory.mkdirs();
+                writePng(frame, new File(outputDirectory, fileName));
+            }
+        }
+        frame.recycle();
+
+        REPORT_DIRECTORY.mkdirs();
+        Files.write(new File(REPORT_DIRECTORY, name + ".csv").toPath(),
+                frameTimes.toString().getBytes(StandardCharsets.UTF_8));
+        StringWriter frameStats = new StringWriter();
+        frameRenderer.getFrameStats().dump(new PrintWriter(frameStats, true));
+        System.out.println(name + ": " + frameStats);
+
+        if (!mismatches.isEmpty()) {
+            File sheetFile = new File(OUTPUT_DIRECTORY, name + ".png");
+            writePng(sheet, sheetFile);
+            fail(name + ": " + mismatches.size() + " frame(s) differ from " + goldenDirectory
+                    + ": " + mismatches + ", the rendered frames are in " + outputDirectory
+                    + " and the day's contact sheet is " + sheetFile);
+        }
+        sheet.recycle();
+    }
+
+    private boolean frameMatches(Bitmap frame, File golden) {
+        Bitmap expected = BitmapFactory.decodeFile(golden.getPath());
+        try {
+            if (expected.getWidth() != size || expected.getHeight() != size) {
+                return false;
+            }
+            int[] actualRow = new int[size];
+            int[] expectedRow = new int[size];
+            for (int y = 0; y < size; y++) {
+                frame.getPixels(actualRow, 0, size, 0, y, size, 1);
+                expected.getPixels(expectedRow, 0, size, 0, y, size, 1);
+                for (int x = 0; x < size; x++) {
+                    int a = actualRow[x];
+                    int b = expectedRow[x];
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        if (Math.abs((a >>> shift & 0xff) - (b >>> shift & 0xff)) > TOLERANCE) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        } finally {
+            expected.recycle();
+        }
+    }
+
+    private static void writePng(Bitmap bitmap, File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        }
+    }
+}
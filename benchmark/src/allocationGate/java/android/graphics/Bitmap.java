@@ -0,0 +1,41 @@
+package android.graphics;
+
+/**
+ * Allocation gate stand-in: a bitmap is only its size, pixels are never touched.
+ */
+public final class Bitmap {
+
+    public enum Config {
+        ALPHA_8,
+        ARGB_8888
+    }
+
+    private final int width;
+    private final int height;
+
+    private Bitmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be > 0");
+        }
+        return new Bitmap(width, height);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void eraseColor(int color) {
+    }
+
+    public void recycle() {
+    }
+}
@@ -0,0 +1,81 @@
+package android.graphics;
+
+/**
+ * Allocation gate stand-in that records draw calls instead of rasterizing them. Every call is
+ * folded into {@link #getChecksum()} so the work feeding it cannot be optimized away.
+ */
+public class Canvas {
+
+    private int operations;
+    private long checksum;
+
+    public Canvas() {
+    }
+
+    public Canvas(Bitmap bitmap) {
+    }
+
+    public int save() {
+        return 1;
+    }
+
+    public void translate(float dx, float dy) {
+        record(Float.floatToIntBits(dx) + 31 * Float.floatToIntBits(dy));
+    }
+
+    public void restore() {
+    }
+
+    public void restoreToCount(int saveCount) {
+    }
+
+    public boolean clipRect(Rect rect) {
+        record(rect.left + 31 * rect.top + 961 * rect.right + 29791 * rect.bottom);
+        return !rect.isEmpty();
+    }
+
+    public void drawColor(int color) {
+        record(color);
+    }
+
+    public void drawColor(int color, PorterDuff.Mode mode) {
+        record(color + mode.ordinal());
+    }
+
+    public void drawRect(Rect rect, Paint paint) {
+        record(rect.left + 31 * rect.top + 961 * rect.right + 29791 * rect.bottom + paint.getColor());
+    }
+
+    public void drawText(String text, float x, float y, Paint paint) {
+        record(text.hashCode() + Float.floatToIntBits(x) + Float.floatToIntBits(y) + paint.getColor());
+    }
+
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        int hash = 0;
+        for (int i = index; i < index + count; i++) {
+            hash = 31 * hash + text[i];
+        }
+        record(hash + Float.floatToIntBits(x) + Float.floatToIntBits(y) + paint.getColor());
+    }
+
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        record(src.left + 31 * src.top + 961 * dst.left + 29791 * dst.top + paint.getColor());
+    }
+
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        record(bitmap.getWidth() + Float.floatToIntBits(left) + Float.floatToIntBits(top));
+    }
+
+    public int getOperationCount() {
+        return operations;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    private void record(int value) {
+        operations++;
+        checksum = 31 * checksum + value;
+    }
+}
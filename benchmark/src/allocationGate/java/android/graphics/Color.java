@@ -0,0 +1,15 @@
+package android.graphics;
+
+/**
+ * Allocation gate stand-in with the color constants the renderers use.
+ */
+public final class Color {
+
+    public static final int BLACK = 0xFF000000;
+    public static final int GRAY = 0xFF888888;
+    public static final int WHITE = 0xFFFFFFFF;
+    public static final int TRANSPARENT = 0;
+
+    private Color() {
+    }
+}
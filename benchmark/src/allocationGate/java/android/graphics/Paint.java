@@ -0,0 +1,106 @@
+package android.graphics;
+
+/**
+ * Allocation gate stand-in. Text is measured with the same per glyph advances as the
+ * benchmarks' measurer, so layouts and the word atlas see plausible sizes.
+ */
+public class Paint {
+
+    public enum Style {
+        FILL,
+        STROKE,
+        FILL_AND_STROKE
+    }
+
+    private int color = Color.BLACK;
+    private float textSize = 12;
+    private Typeface typeface;
+    private boolean antiAlias;
+    private Style style = Style.FILL;
+    private float strokeWidth;
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public void setAlpha(int alpha) {
+        color = (color & 0x00FFFFFF) | (alpha << 24);
+    }
+
+    public int getAlpha() {
+        return color >>> 24;
+    }
+
+    public void setTextSize(float textSize) {
+        this.textSize = textSize;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    public void setTypeface(Typeface typeface) {
+        this.typeface = typeface;
+    }
+
+    public Typeface getTypeface() {
+        return typeface;
+    }
+
+    public void setAntiAlias(boolean antiAlias) {
+        this.antiAlias = antiAlias;
+    }
+
+    public void setStyle(Style style) {
+        this.style = style;
+    }
+
+    public Style getStyle() {
+        return style;
+    }
+
+    public void setStrokeWidth(float strokeWidth) {
+        this.strokeWidth = strokeWidth;
+    }
+
+    public float getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public float measureText(String text) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += advance(text.charAt(i));
+        }
+        return width;
+    }
+
+    public float measureText(char[] text, int index, int count) {
+        float width = 0;
+        for (int i = index; i < index + count; i++) {
+            width += advance(text[i]);
+        }
+        return width;
+    }
+
+    public void getTextBounds(String text, int start, int end, Rect bounds) {
+        float width = 0;
+        for (int i = start; i < end; i++) {
+            width += advance(text.charAt(i));
+        }
+        bounds.set(0, Math.round(-textSize * 0.72f), Math.max(1, Math.round(width)),
+                Math.round(textSize * 0.2f));
+    }
+
+    public float descent() {
+        return textSize * 0.2f;
+    }
+
+    private float advance(char c) {
+        return c == ' ' ? textSize * 0.28f : textSize * (0.5f + (c % 5) * 0.02f);
+    }
+}
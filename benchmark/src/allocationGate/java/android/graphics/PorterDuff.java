@@ -0,0 +1,15 @@
+package android.graphics;
+
+/**
+ * Allocation gate stand-in with the transfer modes the renderers use.
+ */
+public final class PorterDuff {
+
+    public enum Mode {
+        CLEAR,
+        SRC_OVER
+    }
+
+    private PorterDuff() {
+    }
+}
@@ -0,0 +1,12 @@
+package android.graphics;
+
+/**
+ * Allocation gate stand-in, a typeface is only an identity.
+ */
+public final class Typeface {
+
+    public static final Typeface DEFAULT = new Typeface();
+
+    private Typeface() {
+    }
+}
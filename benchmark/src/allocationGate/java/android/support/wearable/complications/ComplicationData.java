@@ -0,0 +1,57 @@
+package android.support.wearable.complications;
+
+/**
+ * Allocation gate stand-in: complication data is only its type and active window.
+ */
+public final class ComplicationData {
+
+    public static final int TYPE_NOT_CONFIGURED = 1;
+    public static final int TYPE_EMPTY = 2;
+    public static final int TYPE_SHORT_TEXT = 3;
+    public static final int TYPE_LONG_TEXT = 4;
+    public static final int TYPE_RANGED_VALUE = 5;
+    public static final int TYPE_ICON = 6;
+    public static final int TYPE_SMALL_IMAGE = 7;
+
+    public static final class Builder {
+        private final int type;
+        private long startTime;
+        private long endTime = Long.MAX_VALUE;
+
+        public Builder(int type) {
+            this.type = type;
+        }
+
+        public Builder setStartTime(long startTime) {
+            this.startTime = startTime;
+            return this;
+        }
+
+        public Builder setEndTime(long endTime) {
+            this.endTime = endTime;
+            return this;
+        }
+
+        public ComplicationData build() {
+            return new ComplicationData(this);
+        }
+    }
+
+    private final int type;
+    private final long startTime;
+    private final long endTime;
+
+    private ComplicationData(Builder builder) {
+        type = builder.type;
+        startTime = builder.startTime;
+        endTime = builder.endTime;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public boolean isActive(long currentTimeMillis) {
+        return currentTimeMillis >= startTime && currentTimeMillis <= endTime;
+    }
+}
@@ -0,0 +1,44 @@
+package android.support.wearable.complications.rendering;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.support.wearable.complications.ComplicationData;
+
+/**
+ * Allocation gate stand-in that fills its bounds while its data is active, with a color that
+ * tells the data type and ambient state apart.
+ */
+public class ComplicationDrawable {
+
+    private final Rect bounds = new Rect();
+    private final Paint paint = new Paint();
+    private ComplicationData data;
+    private boolean inAmbientMode;
+
+    public void setComplicationData(ComplicationData data) {
+        this.data = data;
+    }
+
+    public void setBounds(Rect bounds) {
+        this.bounds.set(bounds);
+    }
+
+    public void setInAmbientMode(boolean inAmbientMode) {
+        this.inAmbientMode = inAmbientMode;
+    }
+
+    public void setLowBitAmbient(boolean lowBitAmbient) {
+    }
+
+    public void setBurnInProtection(boolean burnInProtection) {
+    }
+
+    public void draw(Canvas canvas, long currentTimeMillis) {
+        if (data == null || !data.isActive(currentTimeMillis)) {
+            return;
+        }
+        paint.setColor(0xFF000000 | data.getType() << 8 | (inAmbientMode ? 1 : 0));
+        canvas.drawRect(bounds, paint);
+    }
+}
@@ -0,0 +1,20 @@
+package android.util;
+
+/**
+ * Allocation gate stand-in that prints to the standard error stream.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int w(String tag, String message) {
+        System.err.println("W/" + tag + ": " + message);
+        return 0;
+    }
+
+    public static int e(String tag, String message) {
+        System.err.println("E/" + tag + ": " + message);
+        return 0;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.textwatchface;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.rendering.ComplicationDrawable;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Locale;
+
+/**
+ * Fails the build if a steady-state frame allocates. Runs the engine's {@link FrameRenderer} in
+ * every mode for simulated days against the recording {@link Canvas} stand-in and counts the
+ * bytes the thread allocated per measured day. Everything a frame runs ships as is: the layer
+ * compositor, phrase transition, ambient renderer, complication slots, frame stats and wakeup
+ * log. Only the Android classes underneath are stand-ins, which never allocate themselves.
+ *
+ * <p>The first simulated day of a mode fills the layout cache and the formatter buffers, which
+ * allocate by design, and the next three let the JIT settle, whose compiled code can allocate
+ * once while it replaces the interpreted frames; the fifth day is measured. With fewer days the
+ * first language intermittently shows a few hundred bytes that a run with {@code -Xint} never
+ * does. The days are regular ones: refreshing the zone offset at a daylight saving transition
+ * allocates, twice a year. Run through the {@code verifyDrawAllocations} task with escape
+ * analysis off, so an allocation HotSpot would happen to eliminate but the device would not
+ * still fails the gate. A mode that allocates makes the process exit with status 1.
+ */
+public final class AllocationGate {
+
+    private static final String[] LANGUAGES = {"de", "de-AT", "en", "nl"};
+    private static final ZoneId ZONE = ZoneId.of("Europe/Berlin");
+    /* Ordinary days in June, all but the last one warm up. */
+    private static final long FIRST_DAY_MILLIS =
+            LocalDateTime.of(2021, 6, 18, 0, 0).atZone(ZONE).toInstant().toEpochMilli();
+    private static final long MILLIS_PER_MINUTE = 60 * 1000;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int WARMUP_DAYS = 4;
+    private static final int SURFACE_SIZE = 454;
+    /* StyleSettings.DEFAULT_TEXT_SIZE, which depends on the platform. */
+    private static final int TEXT_SIZE = 55;
+
+    private static final int MODE_INTERACTIVE = 0;
+    private static final int MODE_AMBIENT = 1;
+    private static final int MODE_DATE_OVERLAY = 2;
+    private static final String[] MODE_NAMES = {"interactive", "ambient", "date overlay"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationGate() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        long overhead = measureOverhead();
+        File wakeupFile = File.createTempFile("wakeups", ".bin");
+        wakeupFile.deleteOnExit();
+        WakeupLog wakeupLog = new WakeupLog(wakeupFile);
+        int failures = 0;
+        for (String language : LANGUAGES) {
+            for (int mode = 0; mode < MODE_NAMES.length; mode++) {
+                Face face = new Face(Locale.forLanguageTag(language), mode, wakeupLog);
+                for (int day = 0; day < WARMUP_DAYS; day++) {
+                    face.runDay(mode, dayStartMillis(day));
+                }
+                long before = allocatedBytes();
+                int frameCount = face.runDay(mode, dayStartMillis(WARMUP_DAYS));
+                long allocated = allocatedBytes() - before - overhead;
+                System.out.println(language + " " + MODE_NAMES[mode] + ": " + frameCount + " frames, "
+                        + allocated + " bytes allocated (checksum " + face.checksum() + ")");
+                if (allocated > 0) {
+                    failures++;
+                }
+            }
+        }
+        wakeupLog.close();
+        if (failures > 0) {
+            System.err.println(failures + " mode(s) allocate in steady-state frames");
+            System.exit(1);
+        }
+    }
+
+    private static long dayStartMillis(int day) {
+        return FIRST_DAY_MILLIS + day * MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /* Bytes reading the counter allocates itself, subtracted from every measurement. */
+    private static long measureOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long before = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - before);
+        }
+        return overhead;
+    }
+
+    /**
+     * A watch face in one mode, drawn by the engine's {@link FrameRenderer} with a virtual clock.
+     * Uptime and wall time advance together.
+     */
+    private static final class Face {
+
+        /* Frames right after a phrase change, at the engine's animation rate, at most. */
+        private static final int TRANSITION_FRAMES =
+                (int) (PhraseTransition.DURATION_MS / PhraseTransition.FRAME_INTERVAL_MS) + 2;
+
+        /* A text slot, redrawn every minute, an icon slot and an empty one. */
+        private static final int[] SLOT_IDS = {0, 1, 2};
+        private static final int[] SLOT_TYPES = {ComplicationData.TYPE_SHORT_TEXT,
+                ComplicationData.TYPE_ICON, ComplicationData.TYPE_EMPTY};
+        private static final int SLOT_SIZE = SURFACE_SIZE / 6;
+
+        private final Paint measurePaint = new Paint();
+        private final Canvas canvas = new Canvas();
+        private final FrameRenderer frameRenderer;
+
+        private long now;
+        private final WallClock wallClock = new WallClock(new WallClock.TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        }, ZONE);
+        private int battery = 100;
+
+        Face(Locale locale, int mode, WakeupLog wakeupLog) {
+            TimePhraseProvider provider = TimePhraseProviders.forLocale(locale);
+            PhraseTable phraseTable = PhraseTable.compile(provider);
+            ClockFormatter clockFormatter = new ClockFormatter(provider.getLocale());
+
+            ComplicationDrawable[] drawables = new ComplicationDrawable[SLOT_IDS.length];
+            for (int i = 0; i < SLOT_IDS.length; i++) {
+                drawables[i] = new ComplicationDrawable();
+            }
+            final ComplicationSlots slots = new ComplicationSlots(SLOT_IDS, drawables);
+            for (int i = 0; i < SLOT_IDS.length; i++) {
+                int left = SURFACE_SIZE / 8 + i * SLOT_SIZE * 2;
+                slots.setBounds(SLOT_IDS[i], new Rect(left, SURFACE_SIZE - 2 * SLOT_SIZE,
+                        left + SLOT_SIZE, SURFACE_SIZE - SLOT_SIZE));
+                slots.setData(SLOT_IDS[i], new ComplicationData.Builder(SLOT_TYPES[i]).build(), 0);
+            }
+            slots.setInAmbientMode(mode == MODE_AMBIENT);
+
+            TextLayoutCache textLayoutCache = new TextLayoutCache(phraseTable, new TextMeasurer() {
+                @Override
+                public float measureText(String text, float textSize) {
+                    measurePaint.setTextSize(textSize);
+                    return measurePaint.measureText(text);
+                }
+            });
+            textLayoutCache.configure(Typeface.DEFAULT, SURFACE_SIZE * FrameRenderer.MIN_PHRASE_TEXT_SCALE,
+                    SURFACE_SIZE * FrameRenderer.MAX_PHRASE_TEXT_SCALE, SURFACE_SIZE, SURFACE_SIZE, true,
+                    slots.getBounds(slots.getOccupiedSlots()));
+
+            AmbientRenderer ambientRenderer = new AmbientRenderer(new AmbientRenderer.ComplicationPainter() {
+                @Override
+                public void drawComplications(Canvas canvas, long currentTimeMillis) {
+                    slots.drawAll(canvas, currentTimeMillis);
+                }
+            });
+            ambientRenderer.setPhrases(phraseTable, textLayoutCache);
+            /* With burn-in protection, which adds the per minute shift. */
+            ambientRenderer.configure(Typeface.DEFAULT, false, true);
+            ambientRenderer.setShiftStep(Math.round(SURFACE_SIZE * AmbientRenderer.SHIFT_STEP_SCALE));
+            ambientRenderer.buildAtlas();
+
+            Paint textPaint = new Paint();
+            Paint hourPaint = new Paint();
+            Paint miscPaint = new Paint();
+            textPaint.setColor(0xFFFFFFFF);
+            hourPaint.setColor(0xFFFF8800);
+            miscPaint.setColor(0xFFAAAAAA);
+            miscPaint.setTextSize(TEXT_SIZE / 2);
+            frameRenderer = new FrameRenderer(wallClock, slots, ambientRenderer, wakeupLog,
+                    textPaint, hourPaint, miscPaint, new FrameRenderer.Listener() {
+                        @Override
+                        public void onPhraseTransitionStarted(long uptimeMillis) {
+                        }
+                    });
+            /* Off in the engine by default, on here so the summary is covered too. */
+            frameRenderer.setShowFrameStats(true);
+            frameRenderer.setPhrases(phraseTable, textLayoutCache, clockFormatter);
+            frameRenderer.setTextSize(TEXT_SIZE);
+            frameRenderer.setSurfaceSize(SURFACE_SIZE, SURFACE_SIZE);
+            frameRenderer.setAmbient(mode == MODE_AMBIENT);
+        }
+
+        long checksum() {
+            return canvas.getChecksum();
+        }
+
+        /**
+         * Draws every minute of the day the way the engine would: the minute's frame, in
+         * interactive mode the transition frames after a phrase change and a battery change
+         * half a minute later.
+         *
+         * @return the number of frames drawn
+         */
+        int runDay(int mode, long dayStartMillis) {
+            boolean showDate = mode == MODE_DATE_OVERLAY;
+            int frameCount = 0;
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                now = dayStartMillis + minute * MILLIS_PER_MINUTE;
+                frameRenderer.draw(canvas, showDate, battery, now);
+                frameCount++;
+                if (mode == MODE_INTERACTIVE) {
+                    for (int i = 0; i < TRANSITION_FRAMES && frameRenderer.isPhraseTransitionRunning(); i++) {
+                        now += PhraseTransition.FRAME_INTERVAL_MS;
+                        frameRenderer.draw(canvas, showDate, battery, now);
+                        frameCount++;
+                    }
+                    now = dayStartMillis + minute * MILLIS_PER_MINUTE + MILLIS_PER_MINUTE / 2;
+                    battery = battery == 0 ? 100 : battery - 1;
+                    frameRenderer.draw(canvas, showDate, battery, now);
+                    frameCount++;
+                }
+            }
+            return frameCount;
+        }
+    }
+}
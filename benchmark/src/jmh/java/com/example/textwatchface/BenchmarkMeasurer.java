@@ -0,0 +1,18 @@
+package com.example.textwatchface;
+
+/**
+ * Deterministic stand-in for {@code Paint.measureText(String)} with a per glyph
+ * advance proportional to the text size. It walks the string like the real measurement would.
+ */
+final class BenchmarkMeasurer implements TextMeasurer {
+
+    @Override
+    public float measureText(String text, float textSize) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            width += c == ' ' ? textSize * 0.28f : textSize * (0.5f + (c % 5) * 0.02f);
+        }
+        return width;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.textwatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+
+/**
+ * Status line and date formatting. {@code unchanged*} is the common frame, the other benchmarks
+ * force a rewrite of the buffers on every call.
+ */
+@State(Scope.Thread)
+public class ClockFormatterBenchmark {
+
+    private ClockFormatter formatter;
+    private int minuteOfDay;
+    private int day;
+
+    @Setup
+    public void setUp() {
+        formatter = new ClockFormatter(Locale.GERMAN);
+    }
+
+    @Benchmark
+    public boolean unchangedStatusLine() {
+        return formatter.updateStatusLine(10, 42, 87);
+    }
+
+    @Benchmark
+    public boolean statusLineEveryMinute() {
+        minuteOfDay = (minuteOfDay + 1) % (24 * 60);
+        return formatter.updateStatusLine(minuteOfDay / 60, minuteOfDay % 60, 87);
+    }
+
+    @Benchmark
+    public boolean unchangedDate() {
+        return formatter.updateDate(2021, 5, 19, 7);
+    }
+
+    @Benchmark
+    public boolean dateEveryDay() {
+        day = (day + 1) % 28;
+        return formatter.updateDate(2021, 1, day + 1, day % 7 + 1);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.textwatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The platform independent part of a frame for every minute of the day, per render mode and
+ * surface size: what the engine resolves before it issues draw calls. One invocation covers all
+ * 1440 minutes so the cost of phrase changes, layout cache misses and formatting is averaged the
+ * way a day on the wrist averages it; the score is per minute. The draw calls themselves are
+ * rendered and timed per frame by FrameRenderTest in the app module.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DayFrameBenchmark {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @Param({"320", "390", "454"})
+    public int surfaceSize;
+
+    private PhraseTable table;
+    private ClockFormatter formatter;
+    private TextLayoutCache cache;
+
+    @Setup
+    public void setUp() {
+        table = PhraseTable.compile(TimePhraseProviders.german());
+        formatter = new ClockFormatter(Locale.GERMAN);
+        cache = new TextLayoutCache(table, new BenchmarkMeasurer());
+        cache.configure("montserrat", surfaceSize * 0.07f, surfaceSize * 0.16f,
+                surfaceSize, surfaceSize, true, TextSizeFitter.NO_KEEP_OUT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MINUTES_PER_DAY)
+    public void interactiveDay(Blackhole blackhole) {
+        cache.invalidate();
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            int hour = minuteOfDay / 60;
+            int minute = minuteOfDay % 60;
+            blackhole.consume(cache.get(table.get(hour, minute)));
+            blackhole.consume(formatter.updateStatusLine(hour, minute, 80));
+            blackhole.consume(UpdateScheduler.getNextChangeMillis(minuteOfDay * 60000L));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MINUTES_PER_DAY)
+    public void ambientDay(Blackhole blackhole) {
+        cache.invalidate();
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            int hour = minuteOfDay / 60;
+            int minute = minuteOfDay % 60;
+            blackhole.consume(cache.get(table.get(hour, minute)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MINUTES_PER_DAY)
+    public void dateOverlayDay(Blackhole blackhole) {
+        for (int minuteOfDay = 0; minuteOfDay < MINUTES_PER_DAY; minuteOfDay++) {
+            int day = 1 + minuteOfDay / 60;
+            blackhole.consume(formatter.updateDate(2021, Calendar.JUNE, day, Calendar.SUNDAY + day % 7));
+        }
+    }
+}
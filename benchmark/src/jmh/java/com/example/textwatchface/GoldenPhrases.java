@@ -0,0 +1,87 @@
+package com.example.textwatchface;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes or verifies the phrase of every minute of the day for every language against the golden
+ * files in {@code golden/}, one line per minute with the hour word in brackets, e.g.
+ * {@code 11:30 halb [zwölf]}. Run through the {@code verifyGoldenPhrases} and
+ * {@code updateGoldenPhrases} tasks. The rendered frames are compared with golden images by
+ * FrameRenderTest in the app module.
+ */
+public final class GoldenPhrases {
+
+    private static final String[] LANGUAGES = {"de", "de-AT", "en", "nl"};
+
+    private GoldenPhrases() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 || !("verify".equals(args[0]) || "update".equals(args[0]))) {
+            System.err.println("Usage: GoldenPhrases verify|update <golden directory>");
+            System.exit(2);
+        }
+        boolean update = "update".equals(args[0]);
+        Path directory = Paths.get(args[1]);
+        int mismatches = 0;
+        for (String language : LANGUAGES) {
+            Path file = directory.resolve(language + ".txt");
+            List<String> actual = render(PhraseTable.compile(
+                    TimePhraseProviders.forLocale(Locale.forLanguageTag(language))));
+            if (update) {
+                Files.createDirectories(directory);
+                Files.write(file, actual, StandardCharsets.UTF_8);
+                continue;
+            }
+            if (!Files.exists(file)) {
+                System.err.println("Missing golden file " + file);
+                mismatches++;
+                continue;
+            }
+            List<String> expected = Files.readAllLines(file, StandardCharsets.UTF_8);
+            for (int i = 0; i < Math.max(expected.size(), actual.size()); i++) {
+                String want = i < expected.size() ? expected.get(i) : "<missing>";
+                String got = i < actual.size() ? actual.get(i) : "<missing>";
+                if (!want.equals(got)) {
+                    System.err.println(language + ": expected \"" + want + "\" but was \"" + got + "\"");
+                    mismatches++;
+                }
+            }
+        }
+        if (mismatches > 0) {
+            System.err.println(mismatches + " phrase(s) differ from the golden files");
+            System.exit(1);
+        }
+    }
+
+    private static List<String> render(PhraseTable table) {
+        List<String> lines = new ArrayList<>(24 * 60);
+        for (int hour = 0; hour < 24; hour++) {
+            for (int minute = 0; minute < 60; minute++) {
+                Phrase phrase = table.get(hour, minute);
+                StringBuilder line = new StringBuilder();
+                line.append(String.format(Locale.ROOT, "%02d:%02d", hour, minute));
+                for (int i = 0; i < phrase.words.length; i++) {
+                    line.append(' ');
+                    if (i == phrase.hourWord) {
+                        line.append('[').append(phrase.words[i]).append(']');
+                    } else {
+                        line.append(phrase.words[i]);
+                    }
+                    if (phrase.layout != Phrase.LAYOUT_ONE_LINE && i == 1) {
+                        line.append(" /");
+                    }
+                }
+                lines.add(line.toString());
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.textwatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+
+/**
+ * Time to phrase conversion: the table lookup done per frame against evaluating the wording rules
+ * (what the engine did before the table existed) and the one-off cost of compiling a table.
+ */
+@State(Scope.Thread)
+public class PhraseBenchmark {
+
+    @Param({"de", "de-AT", "en", "nl"})
+    public String language;
+
+    private TimePhraseProvider provider;
+    private PhraseTable table;
+    private int minuteOfDay;
+
+    @Setup
+    public void setUp() {
+        provider = TimePhraseProviders.forLocale(Locale.forLanguageTag(language));
+        table = PhraseTable.compile(provider);
+    }
+
+    @Benchmark
+    public Phrase tableLookup() {
+        int minute = nextMinute();
+        return table.get(minute / 60, minute % 60);
+    }
+
+    @Benchmark
+    public String[] ruleEvaluation() {
+        int minute = nextMinute();
+        return provider.getWords(minute / 60 % PhraseTable.HOURS, minute % 60);
+    }
+
+    @Benchmark
+    public PhraseTable compile() {
+        return PhraseTable.compile(provider);
+    }
+
+    private int nextMinute() {
+        minuteOfDay = (minuteOfDay + 1) % (24 * 60);
+        return minuteOfDay;
+    }
+}
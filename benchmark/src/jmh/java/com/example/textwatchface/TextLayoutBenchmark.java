@@ -0,0 +1,60 @@
+package com.example.textwatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Line layout of the phrases: a cache hit as done per frame against measuring a phrase from
+ * scratch after the cache was invalidated, and fitting the text sizes of all phrases to a new
+ * surface size as done in onSurfaceChanged.
+ */
+@State(Scope.Thread)
+public class TextLayoutBenchmark {
+
+    private static final int SIZE = 454;
+    private static final float MIN_TEXT_SIZE = SIZE * 0.07f;
+    private static final float MAX_TEXT_SIZE = SIZE * 0.16f;
+
+    private PhraseTable table;
+    private TextLayoutCache cache;
+    private int phraseId;
+    private int surfaceSize = SIZE;
+
+    @Setup
+    public void setUp() {
+        table = PhraseTable.compile(TimePhraseProviders.german());
+        cache = new TextLayoutCache(table, new BenchmarkMeasurer());
+        cache.configure("montserrat", MIN_TEXT_SIZE, MAX_TEXT_SIZE, SIZE, SIZE, true,
+                TextSizeFitter.NO_KEEP_OUT);
+        for (int i = 0; i < table.size(); i++) {
+            cache.get(table.phraseAt(i));
+        }
+    }
+
+    @Benchmark
+    public PhraseLayout cachedLayout() {
+        return cache.get(nextPhrase());
+    }
+
+    @Benchmark
+    public PhraseLayout measureLayout() {
+        Phrase phrase = nextPhrase();
+        cache.invalidate();
+        return cache.get(phrase);
+    }
+
+    @Benchmark
+    public boolean fitSurface() {
+        /* Alternate the size so every call refits; the word advances stay cached. */
+        surfaceSize = surfaceSize == SIZE ? SIZE - 1 : SIZE;
+        return cache.configure("montserrat", MIN_TEXT_SIZE, MAX_TEXT_SIZE, surfaceSize, surfaceSize, true,
+                TextSizeFitter.NO_KEEP_OUT);
+    }
+
+    private Phrase nextPhrase() {
+        phraseId = (phraseId + 1) % table.size();
+        return table.phraseAt(phraseId);
+    }
+}
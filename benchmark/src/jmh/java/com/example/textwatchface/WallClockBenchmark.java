@@ -0,0 +1,57 @@
+package com.example.textwatchface;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Resolving the local fields of a frame time, the former {@link Calendar} path against
+ * {@link WallClock}. The virtual time advances by one 60 fps frame per operation and crosses
+ * minute, day and daylight saving boundaries along the way.
+ */
+@State(Scope.Thread)
+public class WallClockBenchmark {
+
+    private static final long FRAME_MILLIS = 16;
+    private static final String ZONE = "Europe/Berlin";
+
+    private Calendar calendar;
+    private WallClock wallClock;
+    private long calendarTime;
+    private long wallClockTime;
+
+    @Setup
+    public void setUp() {
+        calendar = Calendar.getInstance(TimeZone.getTimeZone(ZONE));
+        wallClock = new WallClock(new WallClock.TimeSource() {
+            @Override
+            public long currentTimeMillis() {
+                wallClockTime += FRAME_MILLIS;
+                return wallClockTime;
+            }
+        }, ZoneId.of(ZONE));
+        /* 2021-03-28 00:00 UTC, shortly before the spring transition. */
+        calendarTime = 1616889600000L;
+        wallClockTime = calendarTime;
+    }
+
+    @Benchmark
+    public int calendar() {
+        calendarTime += FRAME_MILLIS;
+        calendar.setTimeInMillis(calendarTime);
+        return calendar.get(Calendar.HOUR) + calendar.get(Calendar.MINUTE)
+                + calendar.get(Calendar.DAY_OF_MONTH) + calendar.get(Calendar.DAY_OF_WEEK);
+    }
+
+    @Benchmark
+    public int wallClock() {
+        wallClock.update();
+        return wallClock.getHour() + wallClock.getMinute()
+                + wallClock.getDayOfMonth() + wallClock.getDayOfWeek();
+    }
+}